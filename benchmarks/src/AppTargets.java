@@ -0,0 +1,65 @@
+import benchmarks.Targets;
+
+import java.util.stream.DoubleStream;
+
+/**
+ * Exposes the default package application classes to the benchmarks.
+ */
+public class AppTargets implements Targets {
+    @Override
+    public Converter converter(String category) {
+        UnitCategory unitCategory = UnitRegistry.getDefault().getCategory(category);
+        ConversionEngine engine = unitCategory.getEngine();
+        return new Converter() {
+            @Override
+            public int unitCount() {
+                return engine.getUnitCount();
+            }
+
+            @Override
+            public double convert(double value, int fromIndex, int toIndex) {
+                return engine.convert(value, fromIndex, toIndex);
+            }
+
+            @Override
+            public void convert(double[] source, double[] destination, int fromIndex, int toIndex) {
+                engine.convert(source, 0, destination, 0, source.length, fromIndex, toIndex);
+            }
+
+            @Override
+            public void convertBulk(double[] source, double[] destination, int fromIndex, int toIndex) {
+                BulkConverter.convert(unitCategory, source, 0, destination, 0, source.length, fromIndex, toIndex);
+            }
+
+            @Override
+            public DoubleStream convert(DoubleStream values, int fromIndex, int toIndex) {
+                return engine.convert(values, fromIndex, toIndex);
+            }
+        };
+    }
+
+    @Override
+    public StringBuilder appendShortest(double value, StringBuilder output) {
+        return NumberFormatter.appendShortest(value, output);
+    }
+
+    @Override
+    public StringBuilder appendFixed(double value, int decimalPlaces, StringBuilder output) {
+        return NumberFormatter.appendFixed(value, decimalPlaces, output);
+    }
+
+    @Override
+    public StringBuilder appendScientific(double value, int decimalPlaces, StringBuilder output) {
+        return NumberFormatter.appendScientific(value, decimalPlaces, output);
+    }
+
+    @Override
+    public String round(double value, int decimalPlaces) {
+        return Tools.round(value, decimalPlaces);
+    }
+
+    @Override
+    public String doubleToScientificNotation(double value, int decimalPlaces) {
+        return Tools.doubleToScientificNotation(value, decimalPlaces);
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion paths: the per-keystroke path used by BasePanel and the bulk array and stream paths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConversionBenchmark {
+    @Param({"length", "time", "temperature"})
+    public String category;
+
+    @Param({"1", "1024", "1048576"})
+    public int size;
+
+    private Targets.Converter converter;
+    private double[] values;
+    private double[] results;
+    private String[] texts;
+    private final StringBuilder output = new StringBuilder();
+    private int fromIndex;
+    private int toIndex;
+
+    @Setup
+    public void setup() {
+        converter = Targets.INSTANCE.converter(category);
+        Random random = new Random(42);
+        values = new double[size];
+        results = new double[size];
+        texts = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextDouble() * 1000;
+            texts[i] = Double.toString(values[i]);
+        }
+        fromIndex = 0;
+        toIndex = converter.unitCount() - 1;
+    }
+
+    /**
+     * Parse, convert and format each value, as BasePanel.calculate does for every edit.
+     */
+    @Benchmark
+    public void calculate(Blackhole blackhole) {
+        for (String text : texts) {
+            double result = converter.convert(Double.parseDouble(text), fromIndex, toIndex);
+            output.setLength(0);
+            blackhole.consume(Targets.INSTANCE.appendShortest(result, output).toString());
+        }
+    }
+
+    @Benchmark
+    public void convertSingle(Blackhole blackhole) {
+        for (double value : values) {
+            blackhole.consume(converter.convert(value, fromIndex, toIndex));
+        }
+    }
+
+    @Benchmark
+    public double[] convertArray() {
+        converter.convert(values, results, fromIndex, toIndex);
+        return results;
+    }
+
+    /**
+     * The fork/join and Vector API path; forked with the incubator module so the vector kernel is used.
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public double[] convertBulk() {
+        converter.convertBulk(values, results, fromIndex, toIndex);
+        return results;
+    }
+
+    @Benchmark
+    public double convertStream() {
+        return converter.convert(Arrays.stream(values), fromIndex, toIndex).sum();
+    }
+}
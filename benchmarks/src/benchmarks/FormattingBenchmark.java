@@ -0,0 +1,61 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the number formatting used for displaying results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FormattingBenchmark {
+    @Param({"1.0", "0.621371", "1.057E-13", "9.4607304725808E12"})
+    public double value;
+
+    @Param({"2", "8"})
+    public int decimalPlaces;
+
+    private final StringBuilder output = new StringBuilder();
+
+    /**
+     * The String concatenation BasePanel used before NumberFormatter, kept as a baseline.
+     */
+    @Benchmark
+    public String concatenation() {
+        String text = "" + value;
+        return text.endsWith(".0") ? text.substring(0, text.length() - 2) : text;
+    }
+
+    @Benchmark
+    public StringBuilder appendShortest() {
+        output.setLength(0);
+        return Targets.INSTANCE.appendShortest(value, output);
+    }
+
+    @Benchmark
+    public StringBuilder appendFixed() {
+        output.setLength(0);
+        return Targets.INSTANCE.appendFixed(value, decimalPlaces, output);
+    }
+
+    @Benchmark
+    public StringBuilder appendScientific() {
+        output.setLength(0);
+        return Targets.INSTANCE.appendScientific(value, decimalPlaces, output);
+    }
+
+    @Benchmark
+    public String round() {
+        return Targets.INSTANCE.round(value, decimalPlaces);
+    }
+
+    @Benchmark
+    public String doubleToScientificNotation() {
+        return Targets.INSTANCE.doubleToScientificNotation(value, decimalPlaces);
+    }
+}
@@ -0,0 +1,24 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of the text typed into the input field.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParsingBenchmark {
+    @Param({"1", "123.456", "0.000001234", "98765432.123456789"})
+    public String input;
+
+    @Benchmark
+    public double parseDouble() {
+        return Double.parseDouble(input);
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import java.util.stream.DoubleStream;
+
+/**
+ * The application code under test. JMH refuses benchmarks in the default package and named packages cannot
+ * import the default package, so the application is reached through this interface, implemented by
+ * {@code AppTargets} next to the application classes.
+ */
+public interface Targets {
+    /**
+     * The single shared implementation.
+     */
+    Targets INSTANCE = load();
+
+    /**
+     * Looks up the conversion engine of a category.
+     *
+     * @param category The lower case category name, e.g. "length".
+     * @return The engine of the category.
+     */
+    Converter converter(String category);
+
+    StringBuilder appendShortest(double value, StringBuilder output);
+
+    StringBuilder appendFixed(double value, int decimalPlaces, StringBuilder output);
+
+    StringBuilder appendScientific(double value, int decimalPlaces, StringBuilder output);
+
+    String round(double value, int decimalPlaces);
+
+    String doubleToScientificNotation(double value, int decimalPlaces);
+
+    /**
+     * The conversion operations of a single category.
+     */
+    interface Converter {
+        int unitCount();
+
+        double convert(double value, int fromIndex, int toIndex);
+
+        void convert(double[] source, double[] destination, int fromIndex, int toIndex);
+
+        void convertBulk(double[] source, double[] destination, int fromIndex, int toIndex);
+
+        DoubleStream convert(DoubleStream values, int fromIndex, int toIndex);
+    }
+
+    private static Targets load() {
+        try {
+            return (Targets) Class.forName("AppTargets").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("AppTargets is missing from the benchmark classpath", e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+#!/bin/sh
+# Creates UnitConverter.jsa, a class data sharing archive of the classes loaded while the window opens.
+# The archive only works with the JDK that created it, so rerun this after upgrading Java or rebuilding the jar.
+# Needs a display, since the training run opens the main window and exits after its first paint.
+cd "$(dirname "$0")/.." || exit 1
+java -XX:ArchiveClassesAtExit=UnitConverter.jsa \
+    -Dunitconverter.exitAfterStartup=true \
+    -jar UnitConverter.jar
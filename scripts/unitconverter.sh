@@ -0,0 +1,8 @@
+#!/bin/sh
+# Launches the converter, using the class data sharing archive from create-cds-archive.sh when one exists.
+# Pass -Dunitconverter.startupReport=true in JAVA_OPTS to print how long each launch phase took.
+cd "$(dirname "$0")/.." || exit 1
+if [ -f UnitConverter.jsa ]; then
+    exec java -XX:SharedArchiveFile=UnitConverter.jsa -Xshare:auto $JAVA_OPTS -jar UnitConverter.jar "$@"
+fi
+exec java $JAVA_OPTS -jar UnitConverter.jar "$@"
@@ -0,0 +1,63 @@
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table of one value expressed in every unit of a category. Values are only formatted when the table asks
+ * for them, which JTable does for visible rows only.
+ */
+public class AllUnitsTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = new String[]{"Unit", "Value"};
+
+    private final StringBuilder text = new StringBuilder();
+    private String[] units;
+    private double[] values;
+
+    public AllUnitsTableModel(String[] units) {
+        setUnits(units);
+    }
+
+    /**
+     * Replaces the units shown, clearing the values until the next {@link #setValues(double[])}.
+     *
+     * @param units The names of the units in the category.
+     */
+    public void setUnits(String[] units) {
+        this.units = units;
+        this.values = null;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Replaces the converted values.
+     *
+     * @param values One value per unit, in the same order as the units.
+     */
+    public void setValues(double[] values) {
+        this.values = values;
+        fireTableRowsUpdated(0, units.length - 1);
+    }
+
+    @Override
+    public int getRowCount() {
+        return units.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (columnIndex == 0)
+            return units[rowIndex];
+        if (values == null || rowIndex >= values.length)
+            return "";
+        text.setLength(0);
+        return NumberFormatter.appendShortest(values[rowIndex], text).toString();
+    }
+}
@@ -0,0 +1,225 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.LineEvent;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared cache for decoded images, fonts and sounds so repeated UI refreshes don't go back to the jar.
+ * <p>
+ * Images, the base font and decoded audio are held through soft references and are reloaded if the garbage
+ * collector clears them under memory pressure. Derived fonts are memoized by (style, size). Each sound keeps a
+ * small pool of open {@link Clip}s that return to the pool when they stop, so native audio lines are reused
+ * rather than leaked.
+ */
+public final class AssetCache {
+    /**
+     * Most clips kept open for a single sound. Playbacks beyond this while all clips are busy are dropped.
+     */
+    public static final int MAX_CLIPS_PER_SOUND = 4;
+
+    private static final Map<String, SoftReference<BufferedImage>> IMAGES = new ConcurrentHashMap<>();
+    private static final Map<String, SoftReference<Font>> BASE_FONTS = new ConcurrentHashMap<>();
+    private static final Map<String, Map<Long, Font>> DERIVED_FONTS = new ConcurrentHashMap<>();
+    private static final Map<String, SoundPool> SOUNDS = new ConcurrentHashMap<>();
+
+    private AssetCache() {
+    }
+
+    /**
+     * Loads something that may fail with an IOException.
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    /**
+     * Gets a cached image, decoding it with the loader on the first request or after it was evicted.
+     * The returned image is shared, so callers must copy it before drawing onto it.
+     *
+     * @param key    A key unique to the image, e.g. its path.
+     * @param loader Decodes the image.
+     * @return The image.
+     * @throws IOException Thrown if the image could not be loaded.
+     */
+    public static BufferedImage getImage(String key, Loader<BufferedImage> loader) throws IOException {
+        SoftReference<BufferedImage> reference = IMAGES.get(key);
+        BufferedImage image = reference == null ? null : reference.get();
+        if (image == null) {
+            image = loader.load();
+            if (image != null)
+                IMAGES.put(key, new SoftReference<>(image));
+        }
+        return image;
+    }
+
+    /**
+     * Gets a font resource derived to a style and size, parsing the font file at most once while it stays cached.
+     *
+     * @param resource The resource path of the TrueType font, e.g. "/resources/font.ttf".
+     * @param style    The desired font style.
+     * @param size     The desired font size.
+     * @return The font.
+     * @throws IOException Thrown if the font could not be read or parsed.
+     */
+    public static Font getFont(String resource, int style, float size) throws IOException {
+        Map<Long, Font> derived = DERIVED_FONTS.computeIfAbsent(resource, key -> new ConcurrentHashMap<>());
+        long key = (long) style << 32 | Float.floatToIntBits(size) & 0xFFFFFFFFL;
+        Font font = derived.get(key);
+        if (font == null) {
+            font = getBaseFont(resource).deriveFont(style, size);
+            derived.put(key, font);
+        }
+        return font;
+    }
+
+    private static Font getBaseFont(String resource) throws IOException {
+        SoftReference<Font> reference = BASE_FONTS.get(resource);
+        Font font = reference == null ? null : reference.get();
+        if (font != null)
+            return font;
+        try (InputStream stream = AssetCache.class.getResourceAsStream(resource)) {
+            if (stream == null)
+                throw new IOException("No resource at " + resource);
+            font = Font.createFont(Font.TRUETYPE_FONT, stream);
+        } catch (FontFormatException e) {
+            throw new IOException("Invalid font at " + resource, e);
+        }
+        BASE_FONTS.put(resource, new SoftReference<>(font));
+        return font;
+    }
+
+    /**
+     * Gets an idle clip for a sound resource, opening a new one if the pool has room. The clip is returned to
+     * the pool when it stops, so callers should only start it and never close it.
+     *
+     * @param resource The resource path of the sound, e.g. "/resources/click.wav".
+     * @return A clip rewound to the start, or null if every pooled clip is playing.
+     * @throws IOException Thrown if the sound could not be read or no audio line is available.
+     */
+    public static Clip getClip(String resource) throws IOException {
+        return SOUNDS.computeIfAbsent(resource, SoundPool::new).acquire();
+    }
+
+    /**
+     * Returns a clip from {@link #getClip(String)} that was never started, e.g. because setting it up failed.
+     * Started clips go back to the pool by themselves when they stop.
+     *
+     * @param resource The resource path the clip was got for.
+     * @param clip     The clip.
+     */
+    public static void releaseClip(String resource, Clip clip) {
+        SoundPool pool = SOUNDS.get(resource);
+        if (pool != null)
+            pool.release(clip);
+        else
+            clip.close(); // The cache was cleared meanwhile
+    }
+
+    /**
+     * Closes every pooled clip and empties the cache.
+     */
+    public static void clear() {
+        IMAGES.clear();
+        BASE_FONTS.clear();
+        DERIVED_FONTS.clear();
+        SOUNDS.values().forEach(SoundPool::close);
+        SOUNDS.clear();
+    }
+
+    /**
+     * The decoded audio of one sound and the clips opened for it.
+     */
+    private static final class SoundPool {
+        private final String resource;
+        private final ConcurrentLinkedQueue<Clip> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger open = new AtomicInteger();
+        private volatile SoftReference<Audio> audio = new SoftReference<>(null);
+        private volatile boolean closed;
+
+        private SoundPool(String resource) {
+            this.resource = resource;
+        }
+
+        private Clip acquire() throws IOException {
+            Clip clip = idle.poll();
+            if (clip != null) {
+                clip.setFramePosition(0);
+                return clip;
+            }
+            if (open.incrementAndGet() > MAX_CLIPS_PER_SOUND) {
+                open.decrementAndGet();
+                return null;
+            }
+            try {
+                Audio data = getAudio();
+                clip = AudioSystem.getClip();
+                clip.open(data.format, data.bytes, 0, data.bytes.length);
+            } catch (LineUnavailableException | IOException | RuntimeException e) {
+                open.decrementAndGet();
+                if (clip != null)
+                    clip.close();
+                throw e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+            Clip pooled = clip;
+            clip.addLineListener(event -> {
+                if (event.getType() == LineEvent.Type.STOP)
+                    release(pooled);
+            });
+            return clip;
+        }
+
+        private void release(Clip clip) {
+            if (closed)
+                clip.close();
+            else
+                idle.offer(clip);
+        }
+
+        private Audio getAudio() throws IOException {
+            Audio data = audio.get();
+            if (data != null)
+                return data;
+            InputStream resourceStream = AssetCache.class.getResourceAsStream(resource);
+            if (resourceStream == null)
+                throw new IOException("No resource at " + resource);
+            // AudioSystem needs mark/reset support to detect the file type
+            try (AudioInputStream stream = AudioSystem.getAudioInputStream(new BufferedInputStream(resourceStream))) {
+                data = new Audio(stream.getFormat(), stream.readAllBytes());
+            } catch (UnsupportedAudioFileException e) {
+                throw new IOException("Unsupported audio at " + resource, e);
+            }
+            audio = new SoftReference<>(data);
+            return data;
+        }
+
+        private void close() {
+            closed = true;
+            for (Clip clip = idle.poll(); clip != null; clip = idle.poll())
+                clip.close();
+        }
+    }
+
+    private static final class Audio {
+        private final AudioFormat format;
+        private final byte[] bytes;
+
+        private Audio(AudioFormat format, byte[] bytes) {
+            this.format = format;
+            this.bytes = bytes;
+        }
+    }
+}
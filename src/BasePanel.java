@@ -3,19 +3,51 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 public class BasePanel extends JPanel implements ActionListener {
-    private double[] ratioToUnitZero;
+    /**
+     * How long a result has to stay on screen before it goes into the history, so typing "123" records one
+     * conversion rather than three.
+     */
+    private static final int HISTORY_SETTLE_MILLIS = 1000;
+
+    private UnitCategory category;
+    private ConversionEngine engine;
 
     private final NumericTextField inputTextField;
     private final JTextField outputTextField;
     private final JList<String> inputList;
     private final JList<String> outputList;
+    private final FilteredListModel inputModel;
+    private final FilteredListModel outputModel;
+    private final JTextField inputSearchField = new JTextField();
+    private final JTextField outputSearchField = new JTextField();
+    private UnitIndex unitIndex; // built on the first search, so switching category stays cheap
+    private boolean updatingLists = false;
     private int inputIndex = 0;
     private int outputIndex = 1;
+    private final StringBuilder outputText = new StringBuilder();
+    private final LatestResultExecutor calculator = new LatestResultExecutor();
+    private final ConverterMetrics metrics = ConverterMetrics.getInstance();
+    private final AllUnitsTableModel allUnitsModel;
+    private final CardLayout outputCards = new CardLayout();
+    private final JPanel outputPanel = new JPanel(outputCards);
+    private boolean showAllUnits = false;
+    private boolean allUnitsTableBuilt = false;
+    private ExpressionParser expressionParser = new ExpressionParser(UnitRegistry.getDefault(), 256);
+    private final JTextField expressionTextField = new JTextField();
+    private final JLabel expressionResultLabel = new JLabel();
+    private final ConversionHistory history = ConversionHistory.getDefault();
+    private final Timer historyTimer = new Timer(HISTORY_SETTLE_MILLIS, e -> recordHistory());
+    private Conversion lastConversion;
+    private Conversion lastRecorded;
 
-    public BasePanel(String[] units, double[] ratioToUnitZero) {
-        this.ratioToUnitZero = ratioToUnitZero;
+    public BasePanel(UnitCategory category) {
+        this.category = category;
+        this.engine = category.getEngine();
+        String[] units = category.getUnits();
 
         setLayout(new BorderLayout());
 
@@ -24,65 +56,288 @@ public class BasePanel extends JPanel implements ActionListener {
         inputTextField = new NumericTextField(this);
         inputTextField.setText("1");
 
-        inputList = new JList<>(units);
+        inputModel = new FilteredListModel(units);
+        inputList = new JList<>(inputModel);
+        inputList.setName("inputList");
         inputList.setSelectedIndex(0);
-        outputList = new JList<>(units);
+        outputModel = new FilteredListModel(units);
+        outputList = new JList<>(outputModel);
+        outputList.setName("outputList");
         outputList.setSelectedIndex(1);
 
         inputList.addListSelectionListener(e -> {
-            inputIndex = inputList.getSelectedIndex();
+            int row = inputList.getSelectedIndex();
+            if (updatingLists || row < 0)
+                return;
+            inputIndex = inputModel.getUnitIndex(row);
             calculate();
         });
 
         outputList.addListSelectionListener(e -> {
-            outputIndex = outputList.getSelectedIndex();
+            int row = outputList.getSelectedIndex();
+            if (updatingLists || row < 0)
+                return;
+            outputIndex = outputModel.getUnitIndex(row);
             calculate();
         });
 
+        inputSearchField.setToolTipText("Search units");
+        outputSearchField.setToolTipText("Search units");
+        onTextChange(inputSearchField, () -> filter(inputSearchField, inputList, inputModel, inputIndex));
+        onTextChange(outputSearchField, () -> filter(outputSearchField, outputList, outputModel, outputIndex));
+
         JPanel topPanel = new JPanel(new GridLayout(1, 2));
         topPanel.add(inputTextField);
         topPanel.add(outputTextField);
         add(topPanel, BorderLayout.NORTH);
 
         JPanel bottomPanel = new JPanel(new GridLayout(1, 2));
-        bottomPanel.add(new JScrollPane(inputList));
-        bottomPanel.add(new JScrollPane(outputList));
+        bottomPanel.add(searchableList(inputSearchField, inputList));
+        allUnitsModel = new AllUnitsTableModel(units);
+        outputPanel.add(searchableList(outputSearchField, outputList), "list");
+        bottomPanel.add(outputPanel);
         add(bottomPanel, BorderLayout.CENTER);
 
+        expressionTextField.setToolTipText("Type a conversion such as \"72 km/h to m/s\" and press Enter");
+        expressionTextField.addActionListener(e -> evaluateExpression());
+        JPanel expressionPanel = new JPanel(new GridLayout(1, 2));
+        expressionPanel.add(expressionTextField);
+        expressionPanel.add(expressionResultLabel);
+        add(expressionPanel, BorderLayout.SOUTH);
+
+        historyTimer.setRepeats(false);
         calculate();
     }
 
-    public void changeUnits(String[] units, double[] ratioToUnitZero) {
-        inputList.setListData(units);
-        inputList.setSelectedIndex(0);
-        outputList.setListData(units);
-        outputList.setSelectedIndex(1);
-        this.ratioToUnitZero = ratioToUnitZero;
+    public void changeUnits(UnitCategory category) {
+        showCategory(category, 0, Math.min(1, category.getUnitCount() - 1));
         inputTextField.setText("1");
         calculate();
     }
 
-    private String formatDouble(String input) {
-        if (input.endsWith(".0")) {
-            return input.substring(0, input.length() - 2);
+    public UnitCategory getCategory() {
+        return category;
+    }
+
+    public int getInputIndex() {
+        return inputIndex;
+    }
+
+    public int getOutputIndex() {
+        return outputIndex;
+    }
+
+    /**
+     * Loads a conversion from the history: its category, units and input value. Entries whose units no longer
+     * exist are ignored.
+     *
+     * @param entry The entry to load.
+     */
+    public void recall(ConversionHistory.Entry entry) {
+        UnitRegistry registry = UnitRegistry.getDefault();
+        int index = registry.indexOfCategory(entry.getCategory());
+        if (index < 0)
+            return;
+        UnitCategory recalled = registry.getCategory(index);
+        int from = recalled.indexOf(entry.getFrom());
+        int to = recalled.indexOf(entry.getTo());
+        if (from < 0 || to < 0)
+            return;
+        showCategory(recalled, from, to);
+        inputTextField.setText(NumberFormatter.appendShortest(entry.getValue(), new StringBuilder()).toString());
+        calculate();
+    }
+
+    /**
+     * Switches to reloaded unit definitions. The category and selected units are looked up again by name, and
+     * the first category or unit is used for any that no longer exist. The input value is kept.
+     *
+     * @param registry The reloaded registry.
+     */
+    public void setRegistry(UnitRegistry registry) {
+        expressionParser = new ExpressionParser(registry, 256);
+        int index = registry.indexOfCategory(category.getName());
+        UnitCategory reloaded = registry.getCategory(Math.max(index, 0));
+        int input = Math.max(reloaded.indexOf(category.getUnit(inputIndex)), 0);
+        int output = Math.max(reloaded.indexOf(category.getUnit(outputIndex)), 0);
+        showCategory(reloaded, input, output);
+        calculate();
+    }
+
+    /**
+     * Shows a category's units with the given units selected. The category, engine and selected indexes are
+     * replaced together on the event dispatch thread, and {@link #calculate()} copies them before handing work to
+     * another thread, so a calculation never pairs an index with the wrong category.
+     */
+    private void showCategory(UnitCategory category, int input, int output) {
+        String[] units = category.getUnits();
+        this.category = category;
+        this.engine = category.getEngine();
+        this.unitIndex = null;
+        inputIndex = input;
+        outputIndex = output;
+        updatingLists = true;
+        inputSearchField.setText("");
+        outputSearchField.setText("");
+        inputModel.setUnits(units);
+        inputList.setSelectedIndex(input);
+        outputModel.setUnits(units);
+        outputList.setSelectedIndex(output);
+        updatingLists = false;
+        allUnitsModel.setUnits(units);
+    }
+
+    /**
+     * Shows only the units matching a search field, keeping the selected unit selected if it still matches.
+     */
+    private void filter(JTextField searchField, JList<String> list, FilteredListModel model, int selectedUnit) {
+        if (updatingLists)
+            return;
+        if (unitIndex == null)
+            unitIndex = new UnitIndex(category);
+        updatingLists = true;
+        model.setMatches(unitIndex.search(searchField.getText()));
+        int row = model.getRow(selectedUnit);
+        if (row >= 0) {
+            list.setSelectedIndex(row);
+            list.ensureIndexIsVisible(row);
+        } else {
+            list.clearSelection();
         }
-        return input;
+        updatingLists = false;
     }
 
-    private void calculate() {
+    private static JPanel searchableList(JTextField searchField, JList<String> list) {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(searchField, BorderLayout.NORTH);
+        panel.add(new JScrollPane(list), BorderLayout.CENTER);
+        return panel;
+    }
+
+    private static void onTextChange(JTextField field, Runnable action) {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                action.run();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                action.run();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Switches between showing the unit list and a table of the input converted to every unit.
+     *
+     * @param showAllUnits True to show the table.
+     */
+    public void setShowAllUnits(boolean showAllUnits) {
+        this.showAllUnits = showAllUnits;
+        if (showAllUnits && !allUnitsTableBuilt) {
+            // The table is hidden at launch, so it is only built the first time it is shown
+            outputPanel.add(new JScrollPane(new JTable(allUnitsModel)), "all units");
+            allUnitsTableBuilt = true;
+        }
+        outputCards.show(outputPanel, showAllUnits ? "all units" : "list");
+        calculate();
+    }
+
+    private void evaluateExpression() {
+        String expression = expressionTextField.getText();
         try {
-            double inputToUnitZero = Double.parseDouble(inputTextField.getText()) / ratioToUnitZero[inputIndex];
-            double output = inputToUnitZero * ratioToUnitZero[outputIndex];
-            outputTextField.setText(formatDouble("" + output));
-        } catch (Exception e) {
-            outputTextField.setText("");
+            double result = expressionParser.evaluate(expression);
+            ConversionPlan plan = expressionParser.plan(expression);
+            expressionResultLabel.setText(NumberFormatter.appendShortest(result, new StringBuilder())
+                    .append(' ').append(plan.getTargetUnit()).toString());
+        } catch (IllegalArgumentException e) {
+            expressionResultLabel.setText(e.getMessage());
         }
     }
 
+    private void calculate() {
+        String input = inputTextField.getText();
+        UnitCategory category = this.category;
+        ConversionEngine engine = this.engine;
+        int inputIndex = this.inputIndex;
+        int outputIndex = this.outputIndex;
+        boolean showAllUnits = this.showAllUnits;
+        calculator.submit(() -> {
+            long start = System.nanoTime();
+            double value = Double.parseDouble(input);
+            double[] allUnits = null;
+            double output;
+            if (showAllUnits) {
+                allUnits = new double[engine.getUnitCount()];
+                engine.convertToAll(value, inputIndex, allUnits);
+                output = allUnits[outputIndex];
+            } else {
+                output = engine.convert(value, inputIndex, outputIndex);
+            }
+            outputText.setLength(0);
+            Conversion conversion = new Conversion(category, inputIndex, outputIndex, value, output,
+                    NumberFormatter.appendShortest(output, outputText).toString(), allUnits);
+            metrics.recordConversions(category, inputIndex, outputIndex, 1);
+            metrics.recordCalculateLatency(System.nanoTime() - start);
+            return conversion;
+        }, conversion -> {
+            outputTextField.setText(conversion.output);
+            if (conversion.allUnits != null)
+                allUnitsModel.setValues(conversion.allUnits);
+            lastConversion = conversion;
+            historyTimer.restart();
+        }, e -> outputTextField.setText(""));
+    }
+
+    /**
+     * Records the conversion on screen once it has settled, unless it is the one recorded last.
+     */
+    private void recordHistory() {
+        Conversion conversion = lastConversion;
+        if (conversion == null || conversion.isSameAs(lastRecorded))
+            return;
+        lastRecorded = conversion;
+        UnitCategory category = conversion.category;
+        history.record(category.getName(), category.getUnit(conversion.inputIndex),
+                category.getUnit(conversion.outputIndex), conversion.value, conversion.result);
+    }
+
     @Override
     public void actionPerformed(ActionEvent e) {
         String cmd = e.getActionCommand();
         if (cmd.equals("calculate"))
             calculate();
     }
+
+    private static class Conversion {
+        private final UnitCategory category;
+        private final int inputIndex;
+        private final int outputIndex;
+        private final double value;
+        private final double result;
+        private final String output;
+        private final double[] allUnits;
+
+        private Conversion(UnitCategory category, int inputIndex, int outputIndex, double value, double result,
+                           String output, double[] allUnits) {
+            this.category = category;
+            this.inputIndex = inputIndex;
+            this.outputIndex = outputIndex;
+            this.value = value;
+            this.result = result;
+            this.output = output;
+            this.allUnits = allUnits;
+        }
+
+        private boolean isSameAs(Conversion other) {
+            return other != null && category == other.category && inputIndex == other.inputIndex
+                    && outputIndex == other.outputIndex && Double.compare(value, other.value) == 0;
+        }
+    }
 }
\ No newline at end of file
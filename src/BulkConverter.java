@@ -0,0 +1,145 @@
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Converts large arrays using every core and, when available, every vector lane.
+ * <p>
+ * Arrays longer than the parallel threshold are split across the common {@link ForkJoinPool}. Each piece is
+ * converted by the Vector API kernel in {@code VectorKernel} when the JVM was started with
+ * "--add-modules jdk.incubator.vector", and by a plain fma loop otherwise. The threshold defaults to 65536
+ * values and can be changed with the "unitconverter.parallelThreshold" system property.
+ */
+public final class BulkConverter {
+    /**
+     * Converts a contiguous range of values with one factor and offset.
+     */
+    interface Kernel {
+        void convert(double[] source, int sourceOffset, double[] destination, int destinationOffset, int length,
+                     double factor, double offset);
+    }
+
+    private static final Kernel SCALAR_KERNEL = (source, sourceOffset, destination, destinationOffset, length,
+                                                 factor, offset) -> {
+        for (int i = 0; i < length; i++)
+            destination[destinationOffset + i] = Math.fma(source[sourceOffset + i], factor, offset);
+    };
+
+    private static final Kernel KERNEL = loadKernel();
+
+    private static final int PARALLEL_THRESHOLD = Math.max(1024,
+            Integer.getInteger("unitconverter.parallelThreshold", 1 << 16));
+
+    private BulkConverter() {
+    }
+
+    /**
+     * Converts a range of an array into another array. The source and destination ranges may be the same or
+     * overlap; partially overlapping ranges are converted from a copy, since both the threads and the vector lanes
+     * would otherwise read values already converted.
+     *
+     * @param category          The category of the units.
+     * @param source            The values to convert.
+     * @param sourceOffset      Index of the first value to convert.
+     * @param destination       The array to write the converted values to.
+     * @param destinationOffset Index to write the first converted value to.
+     * @param length            The number of values to convert.
+     * @param fromIndex         Index of the unit the values are in.
+     * @param toIndex           Index of the desired unit.
+     */
+    public static void convert(UnitCategory category, double[] source, int sourceOffset, double[] destination,
+                               int destinationOffset, int length, int fromIndex, int toIndex) {
+        Objects.checkFromIndexSize(sourceOffset, length, source.length);
+        Objects.checkFromIndexSize(destinationOffset, length, destination.length);
+        if (source == destination && sourceOffset != destinationOffset
+                && Math.abs(sourceOffset - destinationOffset) < length) {
+            source = Arrays.copyOfRange(source, sourceOffset, sourceOffset + length);
+            sourceOffset = 0;
+        }
+        ConversionEngine engine = category.getEngine();
+        double factor = engine.getFactor(fromIndex, toIndex);
+        double offset = engine.getOffset(fromIndex, toIndex);
+        long start = System.nanoTime();
+        if (length <= PARALLEL_THRESHOLD)
+            KERNEL.convert(source, sourceOffset, destination, destinationOffset, length, factor, offset);
+        else
+            ForkJoinPool.commonPool().invoke(new Task(source, sourceOffset, destination, destinationOffset, length,
+                    factor, offset));
+        ConverterMetrics metrics = ConverterMetrics.getInstance();
+        metrics.recordBulkLatency(System.nanoTime() - start);
+        metrics.recordConversions(category, fromIndex, toIndex, length);
+    }
+
+    /**
+     * Converts every value of an array in place.
+     *
+     * @param category  The category of the units.
+     * @param values    The values to convert.
+     * @param fromIndex Index of the unit the values are in.
+     * @param toIndex   Index of the desired unit.
+     */
+    public static void convert(UnitCategory category, double[] values, int fromIndex, int toIndex) {
+        convert(category, values, 0, values, 0, values.length, fromIndex, toIndex);
+    }
+
+    /**
+     * @return True if conversions use the Vector API.
+     */
+    public static boolean isVectorized() {
+        return KERNEL != SCALAR_KERNEL;
+    }
+
+    /**
+     * @return The number of values above which conversions are split across threads.
+     */
+    public static int getParallelThreshold() {
+        return PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * Loads VectorKernel reflectively, so this class still links when the incubator module is absent.
+     */
+    private static Kernel loadKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return SCALAR_KERNEL;
+        try {
+            return (Kernel) Class.forName("VectorKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR_KERNEL;
+        }
+    }
+
+    private static class Task extends RecursiveAction {
+        private final double[] source;
+        private final int sourceOffset;
+        private final double[] destination;
+        private final int destinationOffset;
+        private final int length;
+        private final double factor;
+        private final double offset;
+
+        private Task(double[] source, int sourceOffset, double[] destination, int destinationOffset, int length,
+                     double factor, double offset) {
+            this.source = source;
+            this.sourceOffset = sourceOffset;
+            this.destination = destination;
+            this.destinationOffset = destinationOffset;
+            this.length = length;
+            this.factor = factor;
+            this.offset = offset;
+        }
+
+        @Override
+        protected void compute() {
+            if (length <= PARALLEL_THRESHOLD) {
+                KERNEL.convert(source, sourceOffset, destination, destinationOffset, length, factor, offset);
+                return;
+            }
+            int half = length >>> 1;
+            invokeAll(new Task(source, sourceOffset, destination, destinationOffset, half, factor, offset),
+                    new Task(source, sourceOffset + half, destination, destinationOffset + half, length - half,
+                            factor, offset));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.Arrays;
+
+/**
+ * Runs the headless modes selected by the first command line argument.
+ */
+public class CommandLine {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar UnitConverter.jar [mode]",
+            "  (no arguments)    Start the desktop application",
+            "  --server [port]   Serve conversions over HTTP on localhost (default port 8080)",
+            "  --convert-binary <from> <to> <input> <output> [--stride bytes] [--field offset] [--big-endian]",
+            "                    Convert a file of little-endian doubles, or one field of fixed-size records",
+            "  --convert-csv <from> <to> <columns> <input> <output> [--header] [--delimiter c] [--threads n]",
+            "                [--scale n]",
+            "                    Convert the given one-based CSV columns, e.g. \"3\" or \"3,5\"; with a scale, convert",
+            "                    exactly and round to that many decimal places",
+            "  --from <unit> --to <unit>",
+            "                    Convert numbers from standard input to standard output, one per line",
+            "  --ingest <port> --publish <port> --target <unit> [--target <unit> ...] [--capacity readings]",
+            "                    Convert UDP sensor readings and republish them on localhost",
+            "  --simulate-sensors <port> [--rate readings/s] [--count readings] [--batch readings] [--units F,ft]",
+            "                    Send random sensor readings to a local ingest",
+            "  --sweep <from> <start> <stop> <step> <to>[,<to>...] [output] [--threads n]",
+            "                    Write a CSV table of a range of values converted to other units");
+
+    /**
+     * Runs a headless mode. Modes that keep running (like the server) return once they have started.
+     *
+     * @param args The command line arguments, starting with the mode.
+     */
+    public static void run(String[] args) {
+        String[] modeArgs = Arrays.copyOfRange(args, 1, args.length);
+        try {
+            switch (args[0]) {
+                case "--server":
+                    ConversionServer.main(modeArgs);
+                    break;
+                case "--convert-binary":
+                    MappedFileConverter.main(modeArgs);
+                    break;
+                case "--convert-csv":
+                    CsvConverter.main(modeArgs);
+                    break;
+                case "--ingest":
+                    SensorIngest.main(modeArgs);
+                    break;
+                case "--simulate-sensors":
+                    SensorSimulator.main(modeArgs);
+                    break;
+                case "--sweep":
+                    RangeSweep.main(modeArgs);
+                    break;
+                case "--from":
+                case "--to":
+                    StreamConverter.main(args);
+                    break;
+                case "--help":
+                    System.out.println(USAGE);
+                    break;
+                default:
+                    System.err.println("Unknown mode: " + args[0]);
+                    System.err.println(USAGE);
+                    System.exit(2);
+            }
+        } catch (Exception e) {
+            System.err.println(e.getMessage() != null ? e.getMessage() : e.toString());
+            System.exit(1);
+        }
+    }
+}
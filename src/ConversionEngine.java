@@ -0,0 +1,229 @@
+import java.util.Objects;
+import java.util.stream.DoubleStream;
+
+/**
+ * Converts values between the units of a single category without any Swing dependency.
+ * Instances are immutable and can be shared between threads.
+ * <p>
+ * Units are related to the first unit of the category by {@code unit = ratio * unitZero + offset}.
+ * Every pair of units is compiled into flat row-major factor and offset matrices when the engine is
+ * created, so a conversion is a single {@link Math#fma} looked up by (from, to). Categories with more than
+ * {@link #MAX_MATRIX_UNITS} units would need too much memory for the matrices, so their factors are worked out
+ * per call instead, giving the same results.
+ * <p>
+ * An engine built from exact {@link Rational} ratios holds the nearest double to each pair's exact factor and
+ * offset, rather than the quotient of two already rounded ratios, which can be an ulp off. Above
+ * {@link #MAX_MATRIX_UNITS} units such an engine falls back to dividing the nearest doubles per call.
+ */
+public final class ConversionEngine {
+    /**
+     * Largest category whose pair matrices are precomputed.
+     */
+    public static final int MAX_MATRIX_UNITS = 512;
+
+    private final int unitCount;
+    private final double[] ratios;
+    private final double[] unitOffsets;
+    private final double[] factors;
+    private final double[] offsets;
+
+    /**
+     * Creates an engine for a category where every unit is a pure multiple of the first.
+     *
+     * @param ratioToUnitZero How many of each unit make up one of the first unit in the category.
+     */
+    public ConversionEngine(double[] ratioToUnitZero) {
+        this(ratioToUnitZero, new double[ratioToUnitZero.length]);
+    }
+
+    /**
+     * Creates an engine for a category whose units may have different zero points (e.g. temperature).
+     *
+     * @param ratioToUnitZero  How many of each unit make up one of the first unit in the category.
+     * @param offsetToUnitZero The value of each unit when the first unit is zero.
+     */
+    public ConversionEngine(double[] ratioToUnitZero, double[] offsetToUnitZero) {
+        this(ratioToUnitZero, offsetToUnitZero, null, null);
+    }
+
+    /**
+     * Creates an engine whose factors and offsets are the nearest doubles to the exact values.
+     *
+     * @param ratioToUnitZero  How many of each unit make up one of the first unit in the category.
+     * @param offsetToUnitZero The value of each unit when the first unit is zero.
+     */
+    public ConversionEngine(Rational[] ratioToUnitZero, Rational[] offsetToUnitZero) {
+        this(doubles(ratioToUnitZero), doubles(offsetToUnitZero), ratioToUnitZero, offsetToUnitZero);
+    }
+
+    private ConversionEngine(double[] ratioToUnitZero, double[] offsetToUnitZero, Rational[] exactRatios,
+                             Rational[] exactOffsets) {
+        if (ratioToUnitZero.length != offsetToUnitZero.length)
+            throw new IllegalArgumentException("Ratio and offset tables must be the same length");
+        unitCount = ratioToUnitZero.length;
+        ratios = ratioToUnitZero.clone();
+        unitOffsets = offsetToUnitZero.clone();
+        if (unitCount > MAX_MATRIX_UNITS) {
+            factors = null;
+            offsets = null;
+            return;
+        }
+        factors = new double[unitCount * unitCount];
+        offsets = new double[unitCount * unitCount];
+        for (int from = 0; from < unitCount; from++) {
+            for (int to = 0; to < unitCount; to++) {
+                if (exactRatios != null) {
+                    Rational factor = exactRatios[to].divide(exactRatios[from]);
+                    double offset = exactOffsets[to].subtract(exactOffsets[from].multiply(factor)).doubleValue();
+                    factors[from * unitCount + to] = factor.doubleValue();
+                    offsets[from * unitCount + to] = offset == 0 ? -0.0 : offset;
+                } else {
+                    double factor = computeFactor(from, to);
+                    factors[from * unitCount + to] = factor;
+                    offsets[from * unitCount + to] = computeOffset(from, to, factor);
+                }
+            }
+        }
+    }
+
+    private static double[] doubles(Rational[] values) {
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++)
+            doubles[i] = values[i].doubleValue();
+        return doubles;
+    }
+
+    private double computeFactor(int fromIndex, int toIndex) {
+        return ratios[toIndex] / ratios[fromIndex];
+    }
+
+    private double computeOffset(int fromIndex, int toIndex, double factor) {
+        double offset = Math.fma(-unitOffsets[fromIndex], factor, unitOffsets[toIndex]);
+        // fma(x, factor, -0.0) is exactly x * factor, including the sign of zero
+        return offset == 0 ? -0.0 : offset;
+    }
+
+    private double factor(int pair) {
+        return factors != null ? factors[pair] : computeFactor(pair / unitCount, pair % unitCount);
+    }
+
+    private double offset(int pair) {
+        return offsets != null ? offsets[pair] : computeOffset(pair / unitCount, pair % unitCount, factor(pair));
+    }
+
+    /**
+     * @return The number of units in the category.
+     */
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    /**
+     * Gets the factor that converts from one unit to another.
+     *
+     * @param fromIndex Index of the unit to convert from.
+     * @param toIndex   Index of the unit to convert to.
+     * @return The value to multiply by.
+     */
+    public double getFactor(int fromIndex, int toIndex) {
+        return factor(pairIndex(fromIndex, toIndex));
+    }
+
+    /**
+     * Gets the offset added after multiplying by {@link #getFactor(int, int)}.
+     *
+     * @param fromIndex Index of the unit to convert from.
+     * @param toIndex   Index of the unit to convert to.
+     * @return The value to add, or zero for units that share a zero point.
+     */
+    public double getOffset(int fromIndex, int toIndex) {
+        return offset(pairIndex(fromIndex, toIndex));
+    }
+
+    private int pairIndex(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex >= unitCount || toIndex < 0 || toIndex >= unitCount)
+            throw new IndexOutOfBoundsException("Unit index out of range: " + fromIndex + " -> " + toIndex);
+        return fromIndex * unitCount + toIndex;
+    }
+
+    /**
+     * Converts a single value.
+     *
+     * @param value     The value to convert.
+     * @param fromIndex Index of the unit the value is in.
+     * @param toIndex   Index of the desired unit.
+     * @return The converted value.
+     */
+    public double convert(double value, int fromIndex, int toIndex) {
+        int pair = pairIndex(fromIndex, toIndex);
+        return Math.fma(value, factor(pair), offset(pair));
+    }
+
+    /**
+     * Converts a range of an array into another array. The source and destination may be the same range of the
+     * same array, but must not otherwise overlap.
+     *
+     * @param source            The values to convert.
+     * @param sourceOffset      Index of the first value to convert.
+     * @param destination       The array to write the converted values to.
+     * @param destinationOffset Index to write the first converted value to.
+     * @param length            The number of values to convert.
+     * @param fromIndex         Index of the unit the values are in.
+     * @param toIndex           Index of the desired unit.
+     */
+    public void convert(double[] source, int sourceOffset, double[] destination, int destinationOffset, int length,
+                        int fromIndex, int toIndex) {
+        Objects.checkFromIndexSize(sourceOffset, length, source.length);
+        Objects.checkFromIndexSize(destinationOffset, length, destination.length);
+        int pair = pairIndex(fromIndex, toIndex);
+        double factor = factor(pair);
+        double offset = offset(pair);
+        for (int i = 0; i < length; i++) {
+            destination[destinationOffset + i] = Math.fma(source[sourceOffset + i], factor, offset);
+        }
+    }
+
+    /**
+     * Converts every value in an array.
+     *
+     * @param values    The values to convert.
+     * @param fromIndex Index of the unit the values are in.
+     * @param toIndex   Index of the desired unit.
+     * @return A new array holding the converted values.
+     */
+    public double[] convert(double[] values, int fromIndex, int toIndex) {
+        double[] result = new double[values.length];
+        convert(values, 0, result, 0, values.length, fromIndex, toIndex);
+        return result;
+    }
+
+    /**
+     * Converts one value into every unit of the category in a single pass over the factor row.
+     *
+     * @param value       The value to convert.
+     * @param fromIndex   Index of the unit the value is in.
+     * @param destination Array of at least {@link #getUnitCount()} values, filled in unit order.
+     */
+    public void convertToAll(double value, int fromIndex, double[] destination) {
+        Objects.checkFromIndexSize(0, unitCount, destination.length);
+        int row = pairIndex(fromIndex, 0);
+        for (int to = 0; to < unitCount; to++) {
+            destination[to] = Math.fma(value, factor(row + to), offset(row + to));
+        }
+    }
+
+    /**
+     * Lazily converts every value in a stream.
+     *
+     * @param values    The values to convert.
+     * @param fromIndex Index of the unit the values are in.
+     * @param toIndex   Index of the desired unit.
+     * @return A stream of the converted values.
+     */
+    public DoubleStream convert(DoubleStream values, int fromIndex, int toIndex) {
+        int pair = pairIndex(fromIndex, toIndex);
+        double factor = factor(pair);
+        double offset = offset(pair);
+        return values.map(value -> Math.fma(value, factor, offset));
+    }
+}
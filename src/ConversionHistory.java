@@ -0,0 +1,451 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only log of conversions, kept in a memory-mapped file of fixed-size records so that millions of
+ * entries cost nothing to keep open and any entry can be read directly by its position.
+ * <p>
+ * The file starts with a {@value #HEADER_BYTES} byte header holding the number of records, followed by
+ * {@value #RECORD_BYTES} byte records: the time in epoch milliseconds, the input value, the result, and the ids of
+ * the units converted from and to as ints. The file is mapped in regions of {@link #REGION_RECORDS} records, so
+ * it grows without remapping what is already there.
+ * <p>
+ * Unit ids refer to a side file next to the log ("history.log.units"), one "category TAB unit" line per id, so an
+ * entry keeps naming the same units when the definitions are reloaded, reordered or edited.
+ * <p>
+ * All writes happen on one background thread: {@link #record} only hands the entry over, so it is cheap to call
+ * from the event dispatch thread. The existing log is scanned on that thread too, building an index of record
+ * positions by unit pair. Readers on other threads see a consistent prefix of the log: the record count and
+ * each pair's list of positions are published after the records and names they cover.
+ * <p>
+ * The log is locked while open. Another instance of the application finds it locked, shows the entries that
+ * were there when it opened, and records nothing.
+ */
+public final class ConversionHistory implements Closeable {
+    /**
+     * System property naming the history file to use instead of "~/.unitconverter/history.log".
+     */
+    public static final String HISTORY_PROPERTY = "unitconverter.history";
+
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 32;
+    static final int REGION_RECORDS = 1 << 20;
+
+    private static final int MAGIC = 0x55434832;
+    private static final int COUNT_OFFSET = 8;
+    private static final int VALUE_OFFSET = 8;
+    private static final int RESULT_OFFSET = 16;
+    private static final int FROM_OFFSET = 24;
+    private static final int TO_OFFSET = 28;
+
+    private final Path file;
+    private final Path unitsFile;
+    private final ExecutorService writer;
+    private final Map<Long, PairIndex> pairs = new ConcurrentHashMap<>();
+    private final Map<String, Integer> unitIds = new ConcurrentHashMap<>();
+
+    // Written only on the writer thread
+    private FileChannel channel;
+    private FileChannel unitsChannel;
+    private MappedByteBuffer header;
+
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+    private volatile String[][] unitNames = new String[0][];
+    private volatile long count;
+
+    /**
+     * Opens a history file, creating it if needed. The existing entries are indexed in the background and
+     * become visible through {@link #size()} once that is done.
+     *
+     * @param file The log file.
+     */
+    public ConversionHistory(Path file) {
+        this.file = file;
+        unitsFile = file.resolveSibling(file.getFileName() + ".units");
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversion-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.execute(this::open);
+    }
+
+    /**
+     * @return The history shared by the application, opened on first use.
+     */
+    public static ConversionHistory getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            FileLock lock; // Held until the channel is closed
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null; // Open elsewhere in this process
+            }
+            if (lock == null) {
+                System.err.println("Conversion history at " + file + " is in use by another instance; "
+                        + "not recording");
+                openReadOnly();
+                return;
+            }
+
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            long existing = 0;
+            if (header.getInt(0) == MAGIC && header.getInt(4) == RECORD_BYTES) {
+                // Never trust a count past the end of the file, e.g. if it was truncated
+                existing = Math.min(header.getLong(COUNT_OFFSET), (channel.size() - HEADER_BYTES) / RECORD_BYTES);
+            } else {
+                header.putInt(0, MAGIC);
+                header.putInt(4, RECORD_BYTES);
+                header.putLong(COUNT_OFFSET, 0);
+            }
+            unitsChannel = FileChannel.open(unitsFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (existing == 0)
+                unitsChannel.truncate(0); // Names are only meaningful with the records that use them
+            readUnitNames();
+            unitsChannel.position(unitsChannel.size());
+
+            MappedByteBuffer[] mapped = new MappedByteBuffer[(int) (existing / REGION_RECORDS) + 1];
+            for (int region = 0; region < mapped.length; region++)
+                mapped[region] = mapRegion(region);
+            regions = mapped;
+            indexRecords(existing);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Unable to open conversion history at " + file + ": " + e.getMessage());
+            close(channel);
+            close(unitsChannel);
+            channel = null;
+        }
+    }
+
+    /**
+     * Maps the records already written by the instance holding the lock, without growing the file.
+     */
+    private void openReadOnly() throws IOException {
+        ByteBuffer fileHeader = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                Math.min(HEADER_BYTES, channel.size()));
+        long existing = 0;
+        if (fileHeader.limit() == HEADER_BYTES && fileHeader.getInt(0) == MAGIC
+                && fileHeader.getInt(4) == RECORD_BYTES)
+            existing = Math.min(fileHeader.getLong(COUNT_OFFSET), (channel.size() - HEADER_BYTES) / RECORD_BYTES);
+        if (Files.exists(unitsFile))
+            readUnitNames();
+        MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((existing + REGION_RECORDS - 1) / REGION_RECORDS)];
+        for (int region = 0; region < mapped.length; region++) {
+            long records = Math.min(REGION_RECORDS, existing - (long) region * REGION_RECORDS);
+            mapped[region] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + (long) region * REGION_RECORDS * RECORD_BYTES, records * RECORD_BYTES);
+        }
+        regions = mapped;
+        indexRecords(existing);
+        close(channel);
+        channel = null;
+    }
+
+    private void readUnitNames() throws IOException {
+        List<String> lines = Files.readAllLines(unitsFile, StandardCharsets.UTF_8);
+        String[][] names = new String[lines.size()][];
+        for (int id = 0; id < names.length; id++) {
+            String line = lines.get(id);
+            int tab = line.indexOf('\t');
+            names[id] = tab < 0 ? new String[]{"", line} : new String[]{line.substring(0, tab),
+                    line.substring(tab + 1)};
+            unitIds.putIfAbsent(line, id);
+        }
+        unitNames = names;
+    }
+
+    private void indexRecords(long existing) {
+        MappedByteBuffer[] mapped = regions;
+        for (long index = 0; index < existing; index++) {
+            ByteBuffer region = mapped[(int) (index / REGION_RECORDS)];
+            int offset = (int) (index % REGION_RECORDS) * RECORD_BYTES;
+            pairIndex(region.getInt(offset + FROM_OFFSET), region.getInt(offset + TO_OFFSET)).add((int) index);
+        }
+        count = existing;
+    }
+
+    private MappedByteBuffer mapRegion(int region) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE,
+                HEADER_BYTES + (long) region * REGION_RECORDS * RECORD_BYTES, (long) REGION_RECORDS * RECORD_BYTES);
+    }
+
+    /**
+     * Appends a conversion in the background. Safe to call from any thread.
+     *
+     * @param category The name of the category.
+     * @param from     The name of the unit converted from.
+     * @param to       The name of the unit converted to.
+     * @param value    The value converted.
+     * @param result   The converted value.
+     */
+    public void record(String category, String from, String to, double value, double result) {
+        long time = System.currentTimeMillis();
+        writer.execute(() -> append(time, category, from, to, value, result));
+    }
+
+    private void append(long time, String category, String from, String to, double value, double result) {
+        if (channel == null)
+            return;
+        long index = count;
+        int region = (int) (index / REGION_RECORDS);
+        MappedByteBuffer[] mapped = regions;
+        int fromId;
+        int toId;
+        try {
+            fromId = unitId(category, from);
+            toId = unitId(category, to);
+            if (region == mapped.length) {
+                mapped = Arrays.copyOf(mapped, region + 1);
+                mapped[region] = mapRegion(region);
+                regions = mapped;
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to grow conversion history: " + e.getMessage());
+            return;
+        }
+        ByteBuffer buffer = mapped[region];
+        int offset = (int) (index % REGION_RECORDS) * RECORD_BYTES;
+        buffer.putLong(offset, time);
+        buffer.putDouble(offset + VALUE_OFFSET, value);
+        buffer.putDouble(offset + RESULT_OFFSET, result);
+        buffer.putInt(offset + FROM_OFFSET, fromId);
+        buffer.putInt(offset + TO_OFFSET, toId);
+        header.putLong(COUNT_OFFSET, index + 1);
+        pairIndex(fromId, toId).add((int) index);
+        count = index + 1;
+    }
+
+    /**
+     * Gets the id of a unit, adding it to the side file the first time it is seen.
+     */
+    private int unitId(String category, String unit) throws IOException {
+        String key = unitKey(category, unit);
+        Integer id = unitIds.get(key);
+        if (id != null)
+            return id;
+        ByteBuffer line = ByteBuffer.wrap((key + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining())
+            unitsChannel.write(line);
+        int tab = key.indexOf('\t');
+        String[][] names = Arrays.copyOf(unitNames, unitNames.length + 1);
+        names[names.length - 1] = new String[]{key.substring(0, tab), key.substring(tab + 1)};
+        unitNames = names;
+        unitIds.put(key, names.length - 1);
+        return names.length - 1;
+    }
+
+    /**
+     * Names are written one per line with a tab between category and unit, so neither may contain those.
+     */
+    private static String unitKey(String category, String unit) {
+        return category.replace('\t', ' ').replace('\n', ' ') + "\t" + unit.replace('\t', ' ').replace('\n', ' ');
+    }
+
+    private PairIndex pairIndex(int fromId, int toId) {
+        return pairs.computeIfAbsent(pairKey(fromId, toId), key -> new PairIndex());
+    }
+
+    private static long pairKey(int fromId, int toId) {
+        return (long) fromId << 32 | (toId & 0xFFFFFFFFL);
+    }
+
+    private PairIndex pairIndex(String category, String from, String to) {
+        Integer fromId = unitIds.get(unitKey(category, from));
+        Integer toId = unitIds.get(unitKey(category, to));
+        return fromId == null || toId == null ? null : pairs.get(pairKey(fromId, toId));
+    }
+
+    /**
+     * @return The number of conversions recorded so far.
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Reads an entry.
+     *
+     * @param index The position of the entry, 0 being the oldest.
+     * @return The entry.
+     * @throws IndexOutOfBoundsException Thrown if there is no entry at that position yet.
+     */
+    public Entry get(long index) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("No history entry " + index);
+        ByteBuffer buffer = regions[(int) (index / REGION_RECORDS)];
+        int offset = (int) (index % REGION_RECORDS) * RECORD_BYTES;
+        String[][] names = unitNames;
+        String[] from = unitName(names, buffer.getInt(offset + FROM_OFFSET));
+        String[] to = unitName(names, buffer.getInt(offset + TO_OFFSET));
+        return new Entry(buffer.getLong(offset), from[0], from[1], to[1], buffer.getDouble(offset + VALUE_OFFSET),
+                buffer.getDouble(offset + RESULT_OFFSET));
+    }
+
+    /**
+     * Ids past the end of the side file can only come from a damaged or mismatched pair of files.
+     */
+    private static String[] unitName(String[][] names, int id) {
+        return id >= 0 && id < names.length ? names[id] : new String[]{"?", "?"};
+    }
+
+    /**
+     * @return The number of conversions recorded between two units.
+     */
+    public int sizeOf(String category, String from, String to) {
+        PairIndex index = pairIndex(category, from, to);
+        return index == null ? 0 : index.size;
+    }
+
+    /**
+     * Finds the position of a conversion between two units.
+     *
+     * @param category The name of the category.
+     * @param from     The name of the unit converted from.
+     * @param to       The name of the unit converted to.
+     * @param n        Which conversion between those units, 0 being the oldest.
+     * @return The position of the entry, for {@link #get(long)}.
+     */
+    public long indexOf(String category, String from, String to, int n) {
+        PairIndex index = pairIndex(category, from, to);
+        if (index == null || n < 0 || n >= index.size)
+            throw new IndexOutOfBoundsException("No history entry " + n + " for that pair");
+        return index.records[n];
+    }
+
+    /**
+     * Waits for every pending append to be written.
+     */
+    public void flush() {
+        try {
+            writer.submit(() -> {
+            }).get();
+        } catch (Exception e) {
+            // Nothing left to wait for
+        }
+    }
+
+    /**
+     * Writes the pending appends, releases the lock and closes the file.
+     */
+    @Override
+    public void close() {
+        writer.execute(() -> {
+            close(unitsChannel);
+            close(channel); // Also releases the lock
+            channel = null;
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void close(FileChannel channel) {
+        try {
+            if (channel != null)
+                channel.close();
+        } catch (IOException e) {
+            // Already unusable
+        }
+    }
+
+    /**
+     * One recorded conversion. Units are named as they were when it was recorded, and may no longer exist.
+     */
+    public static final class Entry {
+        private final long time;
+        private final String category;
+        private final String from;
+        private final String to;
+        private final double value;
+        private final double result;
+
+        private Entry(long time, String category, String from, String to, double value, double result) {
+            this.time = time;
+            this.category = category;
+            this.from = from;
+            this.to = to;
+            this.value = value;
+            this.result = result;
+        }
+
+        /**
+         * @return When the conversion was made, in epoch milliseconds.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public double getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * The positions of one pair's records, oldest first. Only the writer thread adds; the array is replaced
+     * before the size is raised, so a reader that reads the size first always finds that many positions.
+     */
+    private static final class PairIndex {
+        private volatile int[] records = new int[8];
+        private volatile int size;
+
+        private void add(int record) {
+            int[] current = records;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                records = current;
+            }
+            current[size] = record;
+            size = size + 1;
+        }
+    }
+
+    private static class DefaultHolder {
+        private static final ConversionHistory INSTANCE = new ConversionHistory(
+                Paths.get(System.getProperty(HISTORY_PROPERTY,
+                        Paths.get(System.getProperty("user.home"), ".unitconverter", "history.log").toString())));
+    }
+}
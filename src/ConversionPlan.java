@@ -0,0 +1,54 @@
+/**
+ * A compiled unit expression such as "# ft # in to cm": one factor per input quantity and an optional offset.
+ * Plans are immutable, so they can be cached and shared between threads.
+ */
+public final class ConversionPlan {
+    private final double[] factors;
+    private final double offset;
+    private final String targetUnit;
+
+    /**
+     * @param factors    The factor applied to each input quantity, in expression order.
+     * @param offset     Added to the sum of the scaled quantities (non-zero only for units like temperature).
+     * @param targetUnit The unit the result is in, as written in the expression.
+     */
+    public ConversionPlan(double[] factors, double offset, String targetUnit) {
+        this.factors = factors.clone();
+        this.offset = offset;
+        this.targetUnit = targetUnit;
+    }
+
+    /**
+     * @return The number of quantities the plan expects.
+     */
+    public int getQuantityCount() {
+        return factors.length;
+    }
+
+    public double getFactor(int quantity) {
+        return factors[quantity];
+    }
+
+    public double getOffset() {
+        return offset;
+    }
+
+    public String getTargetUnit() {
+        return targetUnit;
+    }
+
+    /**
+     * Applies the plan.
+     *
+     * @param quantities One value per quantity in the expression.
+     * @return The converted value.
+     */
+    public double apply(double... quantities) {
+        if (quantities.length != factors.length)
+            throw new IllegalArgumentException("Expected " + factors.length + " values but got " + quantities.length);
+        double result = offset;
+        for (int i = 0; i < factors.length; i++)
+            result = Math.fma(quantities[i], factors[i], result);
+        return result;
+    }
+}
@@ -0,0 +1,286 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Serves conversions over HTTP on the loopback interface, for tools that cannot embed the Swing application.
+ * <ul>
+ * <li>GET /categories lists every category and its units.</li>
+ * <li>GET /convert?from=mi&amp;to=km&amp;value=3 converts a single value.</li>
+ * <li>POST /convert/batch?from=mi&amp;to=km converts every number in the body, separated by commas, whitespace
+ * or wrapped in a JSON array.</li>
+ * </ul>
+ * Units may be names or aliases; an optional "category" parameter restricts the lookup to one category.
+ * Responses are JSON. Each request runs on its own virtual thread when the JVM supports them.
+ */
+public class ConversionServer {
+    private final Supplier<UnitRegistry> registries;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server. It does not accept connections until {@link #start()} is called.
+     *
+     * @param registry The units to serve.
+     * @param port     The loopback port to listen on, or 0 for any free port.
+     * @throws IOException Thrown if the port could not be bound.
+     */
+    public ConversionServer(UnitRegistry registry, int port) throws IOException {
+        this(() -> registry, port);
+    }
+
+    /**
+     * Creates a server whose units can change while it runs. Each request reads the supplier once and uses that
+     * registry throughout, so a reload never mixes old and new units within a response.
+     *
+     * @param registries Supplies the current units, e.g. {@code UnitRegistry::getDefault}.
+     * @param port       The loopback port to listen on, or 0 for any free port.
+     * @throws IOException Thrown if the port could not be bound.
+     */
+    public ConversionServer(Supplier<UnitRegistry> registries, int port) throws IOException {
+        this.registries = registries;
+        this.executor = newRequestExecutor();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/categories", exchange -> handle(exchange, "GET", this::categories));
+        server.createContext("/convert", exchange -> {
+            if (exchange.getRequestURI().getPath().equals("/convert/batch"))
+                handle(exchange, "POST", this::convertBatch);
+            else
+                handle(exchange, "GET", this::convert);
+        });
+    }
+
+    /**
+     * Starts the server from the command line: "--server [port]".
+     *
+     * @param args The arguments after "--server".
+     * @throws IOException Thrown if the port could not be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        ConversionServer server = new ConversionServer(UnitRegistry::getDefault, port);
+        server.start();
+        UnitRegistryWatcher.watchDefault();
+        ConverterMetrics.getInstance().register();
+        System.out.println("Serving conversions on http://localhost:" + server.getPort());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits up to a second for running ones to finish.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Creates a virtual thread per task executor if the running JVM has one enabled, otherwise a cached pool.
+     * It is looked up reflectively so the project still builds and runs on JDKs where virtual threads are a
+     * preview feature or missing.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private String categories(HttpExchange exchange) {
+        UnitRegistry registry = registries.get();
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < registry.getCategoryCount(); i++) {
+            UnitCategory category = registry.getCategory(i);
+            if (i > 0)
+                json.append(',');
+            appendString(json, category.getName()).append(":[");
+            for (int unit = 0; unit < category.getUnitCount(); unit++) {
+                if (unit > 0)
+                    json.append(',');
+                appendString(json, category.getUnit(unit));
+            }
+            json.append(']');
+        }
+        return json.append('}').toString();
+    }
+
+    private String convert(HttpExchange exchange) {
+        Map<String, String> query = parseQuery(exchange);
+        Conversion conversion = resolve(query);
+        double value = parseValue(require(query, "value"));
+        double result = conversion.category.getEngine().convert(value, conversion.from, conversion.to);
+        ConverterMetrics.getInstance().recordConversions(conversion.category, conversion.from, conversion.to, 1);
+        StringBuilder json = new StringBuilder("{\"unit\":");
+        appendString(json, conversion.category.getUnit(conversion.to)).append(",\"value\":");
+        return appendNumber(json, result).append('}').toString();
+    }
+
+    private String convertBatch(HttpExchange exchange) throws IOException {
+        Conversion conversion = resolve(parseQuery(exchange));
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String[] tokens = body.replace('[', ' ').replace(']', ' ').trim().split("[\\s,]+");
+        int count = tokens.length == 1 && tokens[0].isEmpty() ? 0 : tokens.length;
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++)
+            values[i] = parseValue(tokens[i]);
+        BulkConverter.convert(conversion.category, values, conversion.from, conversion.to);
+
+        StringBuilder json = new StringBuilder(count * 12 + 64).append("{\"unit\":");
+        appendString(json, conversion.category.getUnit(conversion.to)).append(",\"values\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                json.append(',');
+            appendNumber(json, values[i]);
+        }
+        return json.append("]}").toString();
+    }
+
+    private Conversion resolve(Map<String, String> query) {
+        UnitRegistry registry = registries.get();
+        String from = require(query, "from");
+        String to = require(query, "to");
+        String categoryName = query.get("category");
+        if (categoryName != null) {
+            UnitCategory category = registry.getCategory(categoryName);
+            return new Conversion(category, unitIndex(registry, category, from), unitIndex(registry, category, to));
+        }
+        long fromUnit = findUnit(registry, from);
+        long toUnit = findUnit(registry, to);
+        if (UnitRegistry.categoryOf(fromUnit) != UnitRegistry.categoryOf(toUnit))
+            throw new IllegalArgumentException("Cannot convert " + from + " to " + to);
+        return new Conversion(registry.getCategory(UnitRegistry.categoryOf(fromUnit)),
+                UnitRegistry.unitOf(fromUnit), UnitRegistry.unitOf(toUnit));
+    }
+
+    private static long findUnit(UnitRegistry registry, String symbol) {
+        long unit = registry.findUnit(symbol);
+        if (unit < 0)
+            throw new IllegalArgumentException("Unknown unit: " + symbol);
+        return unit;
+    }
+
+    private static int unitIndex(UnitRegistry registry, UnitCategory category, String symbol) {
+        int index = category.indexOf(symbol);
+        if (index < 0) {
+            long unit = findUnit(registry, symbol);
+            if (!registry.getCategory(UnitRegistry.categoryOf(unit)).getName().equals(category.getName()))
+                throw new IllegalArgumentException("Unknown " + category.getName() + " unit: " + symbol);
+            index = UnitRegistry.unitOf(unit);
+        }
+        return index;
+    }
+
+    private static void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            if (!exchange.getRequestMethod().equals(method)) {
+                status = 405;
+                body = error("Use " + method);
+            } else {
+                body = handler.handle(exchange);
+            }
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error(e.toString());
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null)
+            return query;
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0)
+                query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String require(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null)
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        return value;
+    }
+
+    private static double parseValue(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + text);
+        }
+    }
+
+    private static String error(String message) {
+        return appendString(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    private static StringBuilder appendNumber(StringBuilder json, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            return json.append("null");
+        return NumberFormatter.appendShortest(value, json);
+    }
+
+    private static StringBuilder appendString(StringBuilder json, String string) {
+        json.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char ch = string.charAt(i);
+            if (ch == '"' || ch == '\\')
+                json.append('\\').append(ch);
+            else if (ch < 0x20)
+                json.append(String.format("\\u%04x", (int) ch));
+            else
+                json.append(ch);
+        }
+        return json.append('"');
+    }
+
+    private interface Handler {
+        String handle(HttpExchange exchange) throws IOException;
+    }
+
+    private static class Conversion {
+        private final UnitCategory category;
+        private final int from;
+        private final int to;
+
+        private Conversion(UnitCategory category, int from, int to) {
+            this.category = category;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
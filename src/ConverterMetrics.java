@@ -0,0 +1,267 @@
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Counts conversions and measures their latency, cheaply enough to stay enabled all the time.
+ * <p>
+ * Every counter is a {@link LongAdder}, so recording from many threads does not contend on one cache line.
+ * The counters are published over JMX by {@link #register()}; see {@link ConverterMetricsMXBean} for what is
+ * exposed. The event dispatch stall threshold defaults to 100 ms and can be changed with the
+ * "unitconverter.edtStallMillis" system property or over JMX.
+ * <p>
+ * Conversion counts are kept by category name, so they carry over when the unit definitions are reloaded and do
+ * not hold on to the replaced categories. Counts for a category whose units changed are dropped on reload.
+ */
+public final class ConverterMetrics implements ConverterMetricsMXBean {
+    /**
+     * Name the metrics are registered under.
+     */
+    public static final String OBJECT_NAME = "UnitConverter:type=ConverterMetrics";
+
+    private static final int BUCKETS = 64;
+    private static final int RECENT_STALLS = 16;
+    private static final ConverterMetrics INSTANCE = new ConverterMetrics();
+
+    private final LongAdder totalConversions = new LongAdder();
+    private final Map<String, PairCounters> pairCounts = new ConcurrentHashMap<>();
+    private final LongAdder[] calculateLatency = newCounters(BUCKETS);
+    private final LongAdder[] bulkLatency = newCounters(BUCKETS);
+    private final LongAdder edtStalls = new LongAdder();
+    private final ArrayDeque<String> recentStalls = new ArrayDeque<>(RECENT_STALLS);
+    private final AtomicBoolean registered = new AtomicBoolean();
+    private volatile long stallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong("unitconverter.edtStallMillis", 100));
+
+    private ConverterMetrics() {
+        UnitRegistry.addDefaultListener(this::dropChangedCategories);
+    }
+
+    /**
+     * @return The metrics shared by the whole application.
+     */
+    public static ConverterMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server. Later calls do nothing. Failures are reported to
+     * stderr rather than thrown, since the application works without them.
+     */
+    public void register() {
+        if (!registered.compareAndSet(false, true))
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            System.err.println("Unable to register metrics: " + e);
+        }
+    }
+
+    /**
+     * Counts values converted between two units.
+     *
+     * @param category  The category of the units.
+     * @param fromIndex Index of the unit the values were in.
+     * @param toIndex   Index of the unit they were converted to.
+     * @param count     The number of values.
+     */
+    public void recordConversions(UnitCategory category, int fromIndex, int toIndex, long count) {
+        PairCounters counters = pairCounts.get(category.getName());
+        if (counters == null || counters.units.length != category.getUnitCount()) {
+            // First use, or the category's units changed in a reload and its counts start over
+            counters = pairCounts.compute(category.getName(), (name, old) ->
+                    old != null && old.units.length == category.getUnitCount() ? old : new PairCounters(category));
+        }
+        counters.get(fromIndex, toIndex).add(count);
+        totalConversions.add(count);
+    }
+
+    /**
+     * @param nanos How long a single value calculation took.
+     */
+    public void recordCalculateLatency(long nanos) {
+        calculateLatency[bucket(nanos)].increment();
+    }
+
+    /**
+     * @param nanos How long a bulk conversion took.
+     */
+    public void recordBulkLatency(long nanos) {
+        bulkLatency[bucket(nanos)].increment();
+    }
+
+    /**
+     * @return The dispatch time above which an event counts as a stall.
+     */
+    public long getStallThresholdNanos() {
+        return stallThresholdNanos;
+    }
+
+    /**
+     * Records an event that kept the event dispatch thread busy for longer than the threshold.
+     *
+     * @param description What was dispatched.
+     * @param nanos       How long it took.
+     */
+    public void recordEdtStall(String description, long nanos) {
+        edtStalls.increment();
+        String stall = description + " took " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms";
+        synchronized (recentStalls) {
+            if (recentStalls.size() == RECENT_STALLS)
+                recentStalls.removeLast();
+            recentStalls.addFirst(stall);
+        }
+    }
+
+    @Override
+    public long getTotalConversions() {
+        return totalConversions.sum();
+    }
+
+    @Override
+    public Map<String, Long> getConversionsByCategory() {
+        Map<String, Long> result = new TreeMap<>();
+        pairCounts.forEach((category, counters) -> counters.forEach((pair, count) ->
+                result.merge(category, count, Long::sum)));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getConversionsByPair() {
+        Map<String, Long> result = new TreeMap<>();
+        pairCounts.forEach((category, counters) -> {
+            String[] units = counters.units;
+            counters.forEach((pair, count) -> result.merge(category + ": "
+                    + units[(int) (pair / units.length)] + " -> " + units[(int) (pair % units.length)],
+                    count, Long::sum));
+        });
+        return result;
+    }
+
+    @Override
+    public long[] getCalculateLatencyHistogram() {
+        return snapshot(calculateLatency);
+    }
+
+    @Override
+    public long[] getBulkLatencyHistogram() {
+        return snapshot(bulkLatency);
+    }
+
+    @Override
+    public long getEdtStallCount() {
+        return edtStalls.sum();
+    }
+
+    @Override
+    public String[] getRecentEdtStalls() {
+        synchronized (recentStalls) {
+            return recentStalls.toArray(new String[0]);
+        }
+    }
+
+    @Override
+    public long getEdtStallThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(stallThresholdNanos);
+    }
+
+    @Override
+    public void setEdtStallThresholdMillis(long thresholdMillis) {
+        if (thresholdMillis < 1)
+            throw new IllegalArgumentException("Threshold must be at least 1 ms");
+        stallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    @Override
+    public void reset() {
+        totalConversions.reset();
+        pairCounts.clear();
+        for (int i = 0; i < BUCKETS; i++) {
+            calculateLatency[i].reset();
+            bulkLatency[i].reset();
+        }
+        edtStalls.reset();
+        synchronized (recentStalls) {
+            recentStalls.clear();
+        }
+    }
+
+    /**
+     * Drops the counts of categories that are gone from a reloaded registry or whose units changed, since their
+     * pairs would otherwise be reported under the wrong unit names.
+     */
+    private void dropChangedCategories(UnitRegistry registry) {
+        pairCounts.entrySet().removeIf(entry -> {
+            int index = registry.indexOfCategory(entry.getKey());
+            return index < 0 || !Arrays.equals(registry.getCategory(index).getUnits(), entry.getValue().units);
+        });
+    }
+
+    private static LongAdder[] newCounters(int count) {
+        LongAdder[] counters = new LongAdder[count];
+        for (int i = 0; i < count; i++)
+            counters[i] = new LongAdder();
+        return counters;
+    }
+
+    /**
+     * Conversion counts for each pair of units in a category. Categories small enough for a
+     * {@link ConversionEngine} matrix get a dense array of counters, so counting never allocates; larger ones
+     * only create counters for the pairs actually used.
+     */
+    private static final class PairCounters {
+        private final String[] units;
+        private final LongAdder[] dense;
+        private final Map<Long, LongAdder> sparse;
+
+        private PairCounters(UnitCategory category) {
+            units = category.getUnits();
+            dense = units.length <= ConversionEngine.MAX_MATRIX_UNITS ? newCounters(units.length * units.length) : null;
+            sparse = dense == null ? new ConcurrentHashMap<>() : null;
+        }
+
+        private LongAdder get(int fromIndex, int toIndex) {
+            long pair = (long) fromIndex * units.length + toIndex;
+            if (dense != null)
+                return dense[(int) pair];
+            LongAdder counter = sparse.get(pair);
+            return counter != null ? counter : sparse.computeIfAbsent(pair, key -> new LongAdder());
+        }
+
+        /**
+         * Passes every pair with a non-zero count, as from * unit count + to, to the action.
+         */
+        private void forEach(BiConsumer<Long, Long> action) {
+            if (dense != null) {
+                for (int pair = 0; pair < dense.length; pair++) {
+                    long count = dense[pair].sum();
+                    if (count != 0)
+                        action.accept((long) pair, count);
+                }
+            } else {
+                sparse.forEach((pair, counter) -> action.accept(pair, counter.sum()));
+            }
+        }
+    }
+
+    private static int bucket(long nanos) {
+        return nanos <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    private static long[] snapshot(LongAdder[] histogram) {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] = histogram[i].sum();
+        return counts;
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.Map;
+
+/**
+ * Management interface of {@link ConverterMetrics}, published over JMX as
+ * "UnitConverter:type=ConverterMetrics".
+ * <p>
+ * Latency histograms are arrays of 64 buckets, where bucket i counts calls that took between 2^i and
+ * 2^(i+1) nanoseconds.
+ */
+public interface ConverterMetricsMXBean {
+    /**
+     * @return The number of values converted since the last reset.
+     */
+    long getTotalConversions();
+
+    /**
+     * @return The number of values converted in each category.
+     */
+    Map<String, Long> getConversionsByCategory();
+
+    /**
+     * @return The number of values converted for each used unit pair, keyed "Category: From -> To".
+     */
+    Map<String, Long> getConversionsByPair();
+
+    /**
+     * @return Latency histogram of single value calculations behind the converter window.
+     */
+    long[] getCalculateLatencyHistogram();
+
+    /**
+     * @return Latency histogram of bulk array conversions.
+     */
+    long[] getBulkLatencyHistogram();
+
+    /**
+     * @return The number of events that kept the event dispatch thread busy for longer than the threshold.
+     */
+    long getEdtStallCount();
+
+    /**
+     * @return The most recent event dispatch stalls, newest first.
+     */
+    String[] getRecentEdtStalls();
+
+    long getEdtStallThresholdMillis();
+
+    void setEdtStallThresholdMillis(long thresholdMillis);
+
+    /**
+     * Zeroes every counter and histogram.
+     */
+    void reset();
+}
@@ -0,0 +1,304 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Converts selected columns of a CSV file between units as a streaming pipeline.
+ * <p>
+ * A reader thread cuts the input into batches of lines and hands each batch to a pool that parses, converts and
+ * formats it. The futures go through a bounded queue to the writer, which takes them in submission order, so
+ * rows come out in input order while batches are processed in parallel. When the writer falls behind the queue
+ * fills up and the reader waits, keeping memory use flat whatever the file size.
+ * <p>
+ * With a scale, fields are read as exact decimals and converted through an {@link ExactConversion}, so the
+ * output is the exactly converted value rounded to that many decimal places.
+ */
+public class CsvConverter {
+    private static final int BATCH_LINES = 4096;
+
+    private final UnitCategory category;
+    private final ConversionEngine engine;
+    private final int fromIndex;
+    private final int toIndex;
+    private final boolean[] convertColumn;
+    private final char delimiter;
+    private final ExactConversion exact;
+    private final int scale;
+
+    /**
+     * @param category  The category of the units.
+     * @param fromIndex Index of the unit the columns are in.
+     * @param toIndex   Index of the desired unit.
+     * @param columns   The zero-based columns to convert.
+     * @param delimiter The field separator.
+     */
+    public CsvConverter(UnitCategory category, int fromIndex, int toIndex, int[] columns, char delimiter) {
+        this(category, fromIndex, toIndex, columns, delimiter, null, -1);
+    }
+
+    /**
+     * Creates a converter that rounds exact results to a fixed number of decimal places.
+     *
+     * @param category  The category of the units.
+     * @param fromIndex Index of the unit the columns are in.
+     * @param toIndex   Index of the desired unit.
+     * @param columns   The zero-based columns to convert.
+     * @param delimiter The field separator.
+     * @param scale     The number of decimal places to write.
+     */
+    public CsvConverter(UnitCategory category, int fromIndex, int toIndex, int[] columns, char delimiter,
+                        int scale) {
+        this(category, fromIndex, toIndex, columns, delimiter, category.getExactConversion(fromIndex, toIndex), scale);
+    }
+
+    private CsvConverter(UnitCategory category, int fromIndex, int toIndex, int[] columns, char delimiter,
+                         ExactConversion exact, int scale) {
+        this.category = category;
+        this.engine = category.getEngine();
+        this.exact = exact;
+        this.scale = scale;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.delimiter = delimiter;
+        int maxColumn = 0;
+        for (int column : columns)
+            maxColumn = Math.max(maxColumn, column);
+        convertColumn = new boolean[maxColumn + 1];
+        for (int column : columns)
+            convertColumn[column] = true;
+    }
+
+    /**
+     * Converts a file.
+     *
+     * @param input   The CSV file to read.
+     * @param output  The CSV file to write.
+     * @param header  True to copy the first line unchanged.
+     * @param threads The number of threads converting batches.
+     * @return The number of rows converted.
+     * @throws IOException Thrown if either file could not be read or written.
+     */
+    public long convert(Path input, Path output, boolean header, int threads) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "csv-convert");
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<Future<Batch>> pending = new ArrayBlockingQueue<>(threads * 2);
+        Future<Batch> endOfInput = CompletableFuture.completedFuture(null);
+        long[] rows = new long[1];
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            if (header) {
+                String line = reader.readLine();
+                if (line != null)
+                    writer.write(line + System.lineSeparator());
+            }
+            Thread readerThread = new Thread(() -> {
+                try {
+                    List<String> batch = new ArrayList<>(BATCH_LINES);
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        batch.add(line);
+                        if (batch.size() == BATCH_LINES) {
+                            List<String> full = batch;
+                            pending.put(workers.submit(() -> convertBatch(full)));
+                            batch = new ArrayList<>(BATCH_LINES);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        List<String> last = batch;
+                        pending.put(workers.submit(() -> convertBatch(last)));
+                    }
+                    pending.put(endOfInput);
+                } catch (IOException | RuntimeException e) {
+                    // Wait for room like any batch, so the writer is sure to see the failure
+                    try {
+                        pending.put(CompletableFuture.failedFuture(e));
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "csv-read");
+            readerThread.setDaemon(true);
+            readerThread.start();
+
+            try {
+                write(pending, endOfInput, writer, rows);
+            } finally {
+                // If writing failed the reader may be waiting for room in the queue, which will never come
+                readerThread.interrupt();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return rows[0];
+    }
+
+    private static void write(BlockingQueue<Future<Batch>> pending, Future<Batch> endOfInput,
+                              Writer writer, long[] rows) throws IOException {
+        try {
+            for (Future<Batch> next = pending.take(); next != endOfInput; next = pending.take()) {
+                Batch converted = next.get();
+                writer.append(converted.text);
+                rows[0] += converted.rows;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while converting", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            if (e.getCause() instanceof UncheckedIOException)
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Batch convertBatch(List<String> lines) {
+        StringBuilder output = new StringBuilder(lines.size() * 64);
+        long converted = 0;
+        for (String line : lines) {
+            converted += convertLine(line, output);
+            output.append(System.lineSeparator());
+        }
+        ConverterMetrics.getInstance().recordConversions(category, fromIndex, toIndex, converted);
+        return new Batch(output, lines.size());
+    }
+
+    /**
+     * Appends a line with its selected columns converted. Fields that are quoted or not numbers are copied as is.
+     *
+     * @return The number of fields converted.
+     */
+    int convertLine(String line, StringBuilder output) {
+        int converted = 0;
+        int column = 0;
+        int start = 0;
+        boolean quoted = false;
+        for (int i = 0; i <= line.length(); i++) {
+            if (i < line.length()) {
+                char ch = line.charAt(i);
+                if (ch == '"')
+                    quoted = !quoted;
+                if (quoted || ch != delimiter)
+                    continue;
+            }
+            if (column < convertColumn.length && convertColumn[column]) {
+                if (appendConverted(line, start, i, output))
+                    converted++;
+            } else {
+                output.append(line, start, i);
+            }
+            if (i < line.length())
+                output.append(delimiter);
+            column++;
+            start = i + 1;
+        }
+        return converted;
+    }
+
+    /**
+     * @return True if the field was a number and was converted, false if it was copied as is.
+     */
+    private boolean appendConverted(String line, int start, int end, StringBuilder output) {
+        try {
+            String field = line.substring(start, end).trim();
+            if (exact != null)
+                output.append(exact.convert(new BigDecimal(field), scale).toPlainString());
+            else
+                NumberFormatter.appendShortest(engine.convert(Double.parseDouble(field), fromIndex, toIndex), output);
+            return true;
+        } catch (NumberFormatException e) {
+            output.append(line, start, end);
+            return false;
+        }
+    }
+
+    /**
+     * Runs from the command line:
+     * "--convert-csv from to columns input output [--header] [--delimiter c] [--threads n] [--scale n]", where
+     * columns is a comma separated list of one-based column numbers and scale selects exact conversion rounded
+     * to that many decimal places.
+     *
+     * @param args The arguments after "--convert-csv".
+     * @throws IOException Thrown if either file could not be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5)
+            throw new IllegalArgumentException("Usage: --convert-csv <from> <to> <columns> <input> <output> "
+                    + "[--header] [--delimiter c] [--threads n] [--scale n]");
+        boolean header = false;
+        char delimiter = ',';
+        int threads = Runtime.getRuntime().availableProcessors();
+        int scale = -1;
+        for (int i = 5; i < args.length; i++) {
+            switch (args[i]) {
+                case "--header":
+                    header = true;
+                    break;
+                case "--delimiter":
+                    delimiter = args[++i].charAt(0);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--scale":
+                    scale = Integer.parseInt(args[++i]);
+                    if (scale < 0)
+                        throw new IllegalArgumentException("Scale must not be negative");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        String[] columnNumbers = args[2].split(",");
+        int[] columns = new int[columnNumbers.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Integer.parseInt(columnNumbers[i].trim()) - 1;
+            if (columns[i] < 0)
+                throw new IllegalArgumentException("Column numbers start at 1");
+        }
+
+        UnitRegistry registry = UnitRegistry.getDefault();
+        long from = registry.findUnit(args[0]);
+        long to = registry.findUnit(args[1]);
+        if (from < 0 || to < 0 || UnitRegistry.categoryOf(from) != UnitRegistry.categoryOf(to))
+            throw new IllegalArgumentException("Cannot convert " + args[0] + " to " + args[1]);
+        UnitCategory category = registry.getCategory(UnitRegistry.categoryOf(from));
+        CsvConverter converter = scale >= 0
+                ? new CsvConverter(category, UnitRegistry.unitOf(from), UnitRegistry.unitOf(to), columns, delimiter,
+                scale)
+                : new CsvConverter(category, UnitRegistry.unitOf(from), UnitRegistry.unitOf(to), columns,
+                delimiter);
+        long rows = converter.convert(Path.of(args[3]), Path.of(args[4]), header, Math.max(1, threads));
+        System.err.println("Converted " + rows + " rows");
+    }
+
+    private static class Batch {
+        private final StringBuilder text;
+        private final int rows;
+
+        private Batch(StringBuilder text, int rows) {
+            this.text = text;
+            this.rows = rows;
+        }
+    }
+}
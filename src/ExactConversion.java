@@ -0,0 +1,150 @@
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Converts between two units and rounds the result, half to even, to a fixed number of decimal places exactly
+ * as if the conversion were done with the exact {@link Rational} factor, e.g. for billing.
+ * <p>
+ * Each value is first converted with doubles: one {@link Math#fma} with the nearest doubles to the exact factor
+ * and offset. The error of that result is bounded from the rounding of the factor, the offset, the input and the
+ * fma itself. If the whole interval the exact result can lie in rounds to the same decimal, that decimal is the
+ * answer. Only values that fall too close to a rounding boundary, or need more digits than a double holds, are
+ * worked out again with exact arithmetic. Instances are safe to share between threads.
+ */
+public final class ExactConversion {
+    /**
+     * The most decimal places the double path handles; powers of ten up to this are exact doubles.
+     */
+    private static final int MAX_FAST_SCALE = 22;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final double MAX_EXACT_LONG = 0x1p53;
+
+    /**
+     * Covers the rounding of the bound's own arithmetic, which is a few ulps of the bound at most.
+     */
+    private static final double BOUND_SLACK = 1 + 0x1p-40;
+
+    private final Rational factor;
+    private final Rational offset;
+    private final double doubleFactor;
+    private final double doubleOffset;
+    private final double factorError;
+    private final double offsetError;
+
+    private final LongAdder fastConversions = new LongAdder();
+    private final LongAdder exactConversions = new LongAdder();
+
+    /**
+     * @param factor The exact value to multiply by.
+     * @param offset The exact value to add afterwards.
+     */
+    public ExactConversion(Rational factor, Rational offset) {
+        this.factor = factor;
+        this.offset = offset;
+        doubleFactor = factor.doubleValue();
+        doubleOffset = offset.doubleValue();
+        // Correct rounding puts each within half an ulp, and exactly on it when the value is a double
+        factorError = Rational.valueOf(doubleFactor).equals(factor) ? 0 : Math.ulp(doubleFactor) / 2;
+        offsetError = Rational.valueOf(doubleOffset).equals(offset) ? 0 : Math.ulp(doubleOffset) / 2;
+    }
+
+    public Rational getFactor() {
+        return factor;
+    }
+
+    public Rational getOffset() {
+        return offset;
+    }
+
+    /**
+     * Converts a double, taking it to be exactly the value it holds.
+     *
+     * @param value The value to convert.
+     * @param scale The number of decimal places to round to.
+     * @return The exact result rounded half to even.
+     * @throws NumberFormatException Thrown if the value is NaN or infinite.
+     */
+    public BigDecimal convert(double value, int scale) {
+        BigDecimal result = tryFast(value, 0, scale);
+        if (result != null)
+            return result;
+        return exact(new BigDecimal(value), scale);
+    }
+
+    /**
+     * Converts a decimal, taking it to be exactly the value written (e.g. 0.1 is exactly one tenth).
+     *
+     * @param value The value to convert.
+     * @param scale The number of decimal places to round to.
+     * @return The exact result rounded half to even.
+     */
+    public BigDecimal convert(BigDecimal value, int scale) {
+        double approximate = value.doubleValue();
+        BigDecimal result = Double.isFinite(approximate)
+                ? tryFast(approximate, Math.ulp(approximate) / 2, scale) : null;
+        if (result != null)
+            return result;
+        return exact(value, scale);
+    }
+
+    /**
+     * Converts a column of values.
+     *
+     * @param values The values to convert.
+     * @param scale  The number of decimal places to round to.
+     * @return The exact results rounded half to even.
+     */
+    public BigDecimal[] convert(double[] values, int scale) {
+        BigDecimal[] results = new BigDecimal[values.length];
+        for (int i = 0; i < values.length; i++)
+            results[i] = convert(values[i], scale);
+        return results;
+    }
+
+    /**
+     * Converts with doubles and checks the rounding is certain.
+     *
+     * @param value      The value, or the nearest double to it.
+     * @param valueError How far the value may be from the real input.
+     * @return The rounded result, or null if it cannot be guaranteed.
+     */
+    private BigDecimal tryFast(double value, double valueError, int scale) {
+        if (scale < 0 || scale > MAX_FAST_SCALE)
+            return null;
+        double result = Math.fma(value, doubleFactor, doubleOffset);
+        // |value * factor - exact * exactFactor| <= |value| * factorError + |exactFactor| * valueError
+        double error = Math.abs(value) * factorError + (Math.abs(doubleFactor) + factorError) * valueError
+                + offsetError + Math.ulp(result) / 2;
+        double power = POWERS_OF_TEN[scale];
+        double scaled = result * power;
+        double scaledError = (error * power + Math.ulp(scaled) / 2) * BOUND_SLACK;
+        double rounded = Math.rint(scaled);
+        // Both ends of the interval must round to the same integer, and that integer must fit a long exactly
+        if (!(Math.abs(scaled - rounded) + scaledError < 0.5) || Math.abs(rounded) >= MAX_EXACT_LONG)
+            return null;
+        fastConversions.increment();
+        return BigDecimal.valueOf((long) rounded, scale);
+    }
+
+    private BigDecimal exact(BigDecimal value, int scale) {
+        exactConversions.increment();
+        return Rational.valueOf(value).multiply(factor).add(offset).toBigDecimal(scale);
+    }
+
+    /**
+     * @return The number of values the double path could round with certainty.
+     */
+    public long getFastConversions() {
+        return fastConversions.sum();
+    }
+
+    /**
+     * @return The number of values worked out with exact arithmetic.
+     */
+    public long getExactConversions() {
+        return exactConversions.sum();
+    }
+}
@@ -0,0 +1,158 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates conversions written as text, such as "72 km/h to m/s" or "3 ft 4 in in cm".
+ * <p>
+ * An expression is one or more "value unit" quantities, then "to" or "in", then the target unit. Units are
+ * names or aliases from a {@link UnitRegistry} and may be combined with "*", "/" and "^" (e.g. "m/s^2").
+ * Parsed expressions are compiled into {@link ConversionPlan}s and kept in a bounded LRU cache keyed by the
+ * expression with its numbers blanked out, so repeating a query with new values skips parsing and unit lookup.
+ * Instances are safe to share between threads.
+ */
+public class ExpressionParser {
+    private static final String NUMBER_PLACEHOLDER = "#";
+
+    private final UnitRegistry registry;
+    private final Map<String, ConversionPlan> cache;
+
+    /**
+     * @param registry  The units expressions may refer to.
+     * @param cacheSize The number of compiled plans to keep.
+     */
+    public ExpressionParser(UnitRegistry registry, int cacheSize) {
+        this.registry = registry;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ConversionPlan> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Evaluates an expression.
+     *
+     * @param expression The expression, e.g. "72 km/h to m/s".
+     * @return The converted value, in the unit named at the end of the expression.
+     * @throws IllegalArgumentException Thrown if the expression is malformed or its units are incompatible.
+     */
+    public double evaluate(String expression) {
+        String[] tokens = tokenize(expression);
+        List<Double> values = new ArrayList<>();
+        StringBuilder key = new StringBuilder();
+        for (String token : tokens) {
+            if (key.length() > 0)
+                key.append(' ');
+            if (isNumber(token)) {
+                values.add(Double.parseDouble(token));
+                key.append(NUMBER_PLACEHOLDER);
+            } else {
+                key.append(token);
+            }
+        }
+        ConversionPlan plan = plan(key.toString(), tokens);
+        double[] quantities = new double[values.size()];
+        for (int i = 0; i < quantities.length; i++)
+            quantities[i] = values.get(i);
+        return plan.apply(quantities);
+    }
+
+    /**
+     * Gets the compiled plan for an expression, from the cache when possible. Numbers in the expression are
+     * ignored, so "1 mi to km" and "26.2 mi to km" share a plan.
+     *
+     * @param expression The expression.
+     * @return The plan.
+     */
+    public ConversionPlan plan(String expression) {
+        String[] tokens = tokenize(expression);
+        for (int i = 0; i < tokens.length; i++) {
+            if (isNumber(tokens[i]))
+                tokens[i] = NUMBER_PLACEHOLDER;
+        }
+        return plan(String.join(" ", tokens), tokens);
+    }
+
+    private ConversionPlan plan(String key, String[] tokens) {
+        synchronized (cache) {
+            ConversionPlan plan = cache.get(key);
+            if (plan != null)
+                return plan;
+        }
+        ConversionPlan plan = compile(tokens);
+        synchronized (cache) {
+            cache.put(key, plan);
+        }
+        return plan;
+    }
+
+    private ConversionPlan compile(String[] tokens) {
+        int length = tokens.length;
+        if (length < 4 || !(tokens[length - 2].equalsIgnoreCase("to") || tokens[length - 2].equalsIgnoreCase("in")))
+            throw new IllegalArgumentException("Expected \"<value> <unit> ... to <unit>\"");
+        if ((length - 2) % 2 != 0)
+            throw new IllegalArgumentException("Every value needs a unit");
+
+        String targetText = tokens[length - 1];
+        Unit target = registry.resolve(targetText);
+        int quantityCount = (length - 2) / 2;
+        double[] factors = new double[quantityCount];
+        double offset = 0;
+        for (int i = 0; i < quantityCount; i++) {
+            if (!isNumber(tokens[i * 2]) && !tokens[i * 2].equals(NUMBER_PLACEHOLDER))
+                throw new IllegalArgumentException("Expected a number but found \"" + tokens[i * 2] + "\"");
+            String sourceText = tokens[i * 2 + 1];
+            Unit source = registry.resolve(sourceText);
+            if (source.isCombinable() && target.isCombinable()) {
+                if (!source.isCompatible(target))
+                    throw new IllegalArgumentException("Cannot convert " + describe(sourceText, source) + " to "
+                            + describe(targetText, target));
+                factors[i] = source.getFactorTo(target);
+                continue;
+            }
+            // Units with offsets or without a known dimension only convert within their own category
+            long from = registry.findUnit(sourceText);
+            long to = registry.findUnit(targetText);
+            if (from < 0 || to < 0 || UnitRegistry.categoryOf(from) != UnitRegistry.categoryOf(to))
+                throw new IllegalArgumentException("Cannot convert " + sourceText + " to " + targetText);
+            if (quantityCount != 1)
+                throw new IllegalArgumentException("Units with offsets cannot be added together");
+            ConversionEngine engine = registry.getCategory(UnitRegistry.categoryOf(from)).getEngine();
+            factors[i] = engine.getFactor(UnitRegistry.unitOf(from), UnitRegistry.unitOf(to));
+            offset = engine.getOffset(UnitRegistry.unitOf(from), UnitRegistry.unitOf(to));
+        }
+        return new ConversionPlan(factors, offset, targetText);
+    }
+
+    /**
+     * Names a unit with the category of its dimension, e.g. "km/h (Speed)", or its SI dimension when no category
+     * has it.
+     */
+    private String describe(String text, Unit unit) {
+        int category = registry.indexOfDimension(unit.getDimension());
+        return text + " (" + (category >= 0 ? registry.getCategoryNames().get(category)
+                : UnitDimension.toString(unit.getDimension())) + ")";
+    }
+
+    private static String[] tokenize(String expression) {
+        String trimmed = expression.trim();
+        if (trimmed.isEmpty())
+            throw new IllegalArgumentException("Empty expression");
+        return trimmed.split("\\s+");
+    }
+
+    private static boolean isNumber(String token) {
+        char first = token.charAt(0);
+        if (!(Character.isDigit(first) || first == '.' || first == '-' || first == '+'))
+            return false;
+        try {
+            Double.parseDouble(token);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import javax.swing.*;
+import java.util.Arrays;
+
+/**
+ * List of the units of a category that match the current search. Changing the filter only fires events for
+ * the rows between the unchanged head and tail of the list, so the list repaints just what changed.
+ */
+public class FilteredListModel extends AbstractListModel<String> {
+    private String[] units;
+    private int[] rows;
+    private int[] rowOfUnit;
+
+    public FilteredListModel(String[] units) {
+        setUnits(units);
+    }
+
+    /**
+     * Replaces the units and shows every one of them.
+     *
+     * @param units The names of the units in the category.
+     */
+    public void setUnits(String[] units) {
+        if (rows != null && rows.length > 0) {
+            // Empty the list first, so listeners see the old rows go before any of the new units arrive
+            int oldSize = rows.length;
+            rows = new int[0];
+            Arrays.fill(rowOfUnit, -1);
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        this.units = units;
+        this.rows = new int[units.length];
+        this.rowOfUnit = new int[units.length];
+        for (int i = 0; i < units.length; i++) {
+            rows[i] = i;
+            rowOfUnit[i] = i;
+        }
+        if (units.length > 0)
+            fireIntervalAdded(this, 0, units.length - 1);
+    }
+
+    /**
+     * Shows only the given units, in the given order.
+     *
+     * @param matches Indexes of the units to show, e.g. from {@link UnitIndex#search(String)}.
+     */
+    public void setMatches(int[] matches) {
+        int[] old = rows;
+        int head = 0;
+        while (head < old.length && head < matches.length && old[head] == matches[head])
+            head++;
+        int tail = 0;
+        while (tail < old.length - head && tail < matches.length - head
+                && old[old.length - 1 - tail] == matches[matches.length - 1 - tail])
+            tail++;
+
+        for (int row : old)
+            rowOfUnit[row] = -1;
+        for (int row = 0; row < matches.length; row++)
+            rowOfUnit[matches[row]] = row;
+        rows = matches;
+
+        int oldEnd = old.length - tail;
+        int newEnd = matches.length - tail;
+        int changed = Math.min(oldEnd, newEnd);
+        if (changed > head)
+            fireContentsChanged(this, head, changed - 1);
+        if (oldEnd > newEnd)
+            fireIntervalRemoved(this, newEnd, oldEnd - 1);
+        else if (newEnd > oldEnd)
+            fireIntervalAdded(this, oldEnd, newEnd - 1);
+    }
+
+    /**
+     * @param row A row of the list.
+     * @return The index of the unit shown in the row.
+     */
+    public int getUnitIndex(int row) {
+        return rows[row];
+    }
+
+    /**
+     * @param unit The index of a unit in the category.
+     * @return The row showing the unit, or -1 if it is filtered out.
+     */
+    public int getRow(int unit) {
+        return rowOfUnit[unit];
+    }
+
+    @Override
+    public int getSize() {
+        return rows.length;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return units[rows[index]];
+    }
+}
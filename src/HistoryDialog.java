@@ -0,0 +1,56 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+/**
+ * Shows past conversions, most recent first. Double-clicking an entry loads it back into the converter.
+ */
+public class HistoryDialog extends JDialog {
+    private static final int REFRESH_MILLIS = 500;
+
+    public HistoryDialog(Frame owner, ConversionHistory history, BasePanel panel) {
+        super(owner, "History", false);
+        HistoryTableModel model = new HistoryTableModel(history);
+        JTable table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.rowAtPoint(e.getPoint());
+                if (e.getClickCount() == 2 && row >= 0)
+                    panel.recall(model.getEntry(row));
+            }
+        });
+
+        JCheckBox pairOnly = new JCheckBox("Only the selected units");
+        pairOnly.addActionListener(e -> {
+            if (pairOnly.isSelected()) {
+                UnitCategory category = panel.getCategory();
+                model.setPair(category.getName(), category.getUnit(panel.getInputIndex()),
+                        category.getUnit(panel.getOutputIndex()));
+            } else {
+                model.clearPair();
+            }
+        });
+
+        // Appends happen in the background, so poll for new entries rather than listening on every one
+        Timer refresh = new Timer(REFRESH_MILLIS, e -> model.refresh());
+        refresh.start();
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refresh.stop();
+            }
+        });
+
+        setLayout(new BorderLayout());
+        add(pairOnly, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        setSize(600, 400);
+        setLocationRelativeTo(owner);
+    }
+}
@@ -0,0 +1,113 @@
+import javax.swing.table.AbstractTableModel;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Table of the {@link ConversionHistory}, most recent first, optionally limited to one pair of units. Rows are
+ * read from the history's mapped file when the table asks for them, which JTable does for visible rows only, so
+ * a history of millions of entries opens instantly.
+ */
+public class HistoryTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = new String[]{"Time", "Value", "From", "Result", "To"};
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private final ConversionHistory history;
+    private final StringBuilder text = new StringBuilder();
+    private String pairCategory;
+    private String pairFrom;
+    private String pairTo;
+    private int rowCount;
+
+    public HistoryTableModel(ConversionHistory history) {
+        this.history = history;
+        rowCount = countRows();
+    }
+
+    /**
+     * Shows only conversions between two units.
+     *
+     * @param category The name of the category.
+     * @param from     The name of the unit converted from.
+     * @param to       The name of the unit converted to.
+     */
+    public void setPair(String category, String from, String to) {
+        pairCategory = category;
+        pairFrom = from;
+        pairTo = to;
+        rowCount = countRows();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Shows every conversion.
+     */
+    public void clearPair() {
+        pairCategory = null;
+        rowCount = countRows();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Picks up conversions recorded since the last refresh. They are inserted at the top.
+     */
+    public void refresh() {
+        int rows = countRows();
+        if (rows > rowCount) {
+            int added = rows - rowCount;
+            rowCount = rows;
+            fireTableRowsInserted(0, added - 1);
+        }
+    }
+
+    private int countRows() {
+        if (pairCategory != null)
+            return history.sizeOf(pairCategory, pairFrom, pairTo);
+        return (int) Math.min(history.size(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param row A row of the table.
+     * @return The entry shown in that row.
+     */
+    public ConversionHistory.Entry getEntry(int row) {
+        int n = rowCount - 1 - row;
+        long index = pairCategory != null ? history.indexOf(pairCategory, pairFrom, pairTo, n) : n;
+        return history.get(index);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        ConversionHistory.Entry entry = getEntry(rowIndex);
+        switch (columnIndex) {
+            case 0:
+                return TIME_FORMAT.format(Instant.ofEpochMilli(entry.getTime()));
+            case 1:
+                text.setLength(0);
+                return NumberFormatter.appendShortest(entry.getValue(), text).toString();
+            case 2:
+                return entry.getFrom();
+            case 3:
+                text.setLength(0);
+                return NumberFormatter.appendShortest(entry.getResult(), text).toString();
+            default:
+                return entry.getTo();
+        }
+    }
+}
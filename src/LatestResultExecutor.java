@@ -0,0 +1,52 @@
+import javax.swing.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs calculations off the EDT and only hands back the result of the newest request. Requests that are
+ * overtaken before they start are skipped, and results that arrive after a newer request are dropped.
+ */
+public class LatestResultExecutor {
+    /**
+     * Shared by every instance. It is single threaded so tasks from one owner never run concurrently and may
+     * reuse that owner's buffers.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "calculation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong latestRequest = new AtomicLong();
+
+    /**
+     * Submits a calculation, superseding any earlier one from this instance.
+     *
+     * @param task     The calculation, run on the background thread.
+     * @param onResult Receives the result on the EDT, if no newer request was made in the meantime.
+     * @param onError  Receives any exception from the task on the EDT, under the same condition.
+     * @param <T>      The type of the result.
+     */
+    public <T> void submit(Callable<T> task, Consumer<T> onResult, Consumer<Exception> onError) {
+        long request = latestRequest.incrementAndGet();
+        EXECUTOR.execute(() -> {
+            if (request != latestRequest.get())
+                return;
+            try {
+                T result = task.call();
+                SwingUtilities.invokeLater(() -> {
+                    if (request == latestRequest.get())
+                        onResult.accept(result);
+                });
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (request == latestRequest.get())
+                        onError.accept(e);
+                });
+            }
+        });
+    }
+}
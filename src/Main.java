@@ -1,17 +1,28 @@
 import com.formdev.flatlaf.FlatDarculaLaf;
-import com.formdev.flatlaf.FlatLightLaf;
 
 import javax.swing.*;
 
 public class Main {
     public static void main(String args[]) {
-        FlatLightLaf.setup();
+        StartupTimer.start();
+        if (args.length > 0) {
+            CommandLine.run(args);
+            return;
+        }
 
         try {
             UIManager.setLookAndFeel(new FlatDarculaLaf());
         } catch (Exception ex) {
             System.err.println("Failed to initialize LaF");
         }
+        StartupTimer.mark("look and feel");
+
+        StallDetectingEventQueue.install(ConverterMetrics.getInstance());
+        // Starting the MBean server takes a while, so keep it off the launch path
+        Thread metrics = new Thread(ConverterMetrics.getInstance()::register, "metrics");
+        metrics.setDaemon(true);
+        metrics.start();
+        UnitRegistryWatcher.watchDefault();
 
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
@@ -22,6 +33,8 @@ public class Main {
 
     private static void createAndShowGUI() {
         MainFrame mainFrame = new MainFrame();
+        StartupTimer.mark("frame built");
         mainFrame.setVisible(true);
+        StartupTimer.mark("visible");
     }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Converts one field of a binary file of doubles from one unit to another, through memory-mapped chunks so
+ * files larger than the heap work.
+ * <p>
+ * A plain file of doubles has a stride of 8 and a field offset of 0. Record files with a fixed stride keep
+ * every other byte of each record as is.
+ */
+public final class MappedFileConverter {
+    private static final long CHUNK_BYTES = 64L << 20;
+    private static final int BATCH_VALUES = 1 << 17;
+
+    private MappedFileConverter() {
+    }
+
+    /**
+     * Converts a file. The output may be the same path as the input to convert in place.
+     *
+     * @param category    The category of the units.
+     * @param fromIndex   Index of the unit the field is in.
+     * @param toIndex     Index of the desired unit.
+     * @param input       The file to read.
+     * @param output      The file to write.
+     * @param stride      The size of each record in bytes.
+     * @param fieldOffset The position of the double within each record.
+     * @param order       The byte order of the doubles.
+     * @return The number of values converted.
+     * @throws IOException Thrown if either file could not be read or written.
+     */
+    public static long convert(UnitCategory category, int fromIndex, int toIndex, Path input, Path output,
+                               int stride, int fieldOffset, ByteOrder order) throws IOException {
+        if (stride < Double.BYTES || fieldOffset < 0 || fieldOffset > stride - Double.BYTES)
+            throw new IllegalArgumentException("A double at offset " + fieldOffset + " does not fit a "
+                    + stride + " byte record");
+        long size = Files.size(input);
+        if (size % stride != 0)
+            throw new IllegalArgumentException(input + " is " + size + " bytes, not a whole number of "
+                    + stride + " byte records");
+
+        boolean inPlace = Files.exists(output) && Files.isSameFile(input, output);
+        if (stride == Double.BYTES && !inPlace)
+            convertDoubles(category, fromIndex, toIndex, input, output, size, order);
+        else
+            convertRecords(category, fromIndex, toIndex, input, output, inPlace, size, stride, fieldOffset, order);
+        return size / stride;
+    }
+
+    /**
+     * Converts a packed file of doubles into a separate output through DoubleBuffer views.
+     */
+    private static void convertDoubles(UnitCategory category, int fromIndex, int toIndex, Path input, Path output,
+                                       long size, ByteOrder order) throws IOException {
+        double[] batch = new double[BATCH_VALUES];
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long position = 0; position < size; position += CHUNK_BYTES) {
+                long length = Math.min(CHUNK_BYTES, size - position);
+                DoubleBuffer source = in.map(FileChannel.MapMode.READ_ONLY, position, length)
+                        .order(order).asDoubleBuffer();
+                DoubleBuffer destination = out.map(FileChannel.MapMode.READ_WRITE, position, length)
+                        .order(order).asDoubleBuffer();
+                while (source.hasRemaining()) {
+                    int count = Math.min(batch.length, source.remaining());
+                    source.get(batch, 0, count);
+                    BulkConverter.convert(category, batch, 0, batch, 0, count, fromIndex, toIndex);
+                    destination.put(batch, 0, count);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the input unless converting in place, then rewrites one field of every record of the output.
+     */
+    private static void convertRecords(UnitCategory category, int fromIndex, int toIndex, Path input, Path output,
+                                       boolean inPlace, long size, int stride, int fieldOffset, ByteOrder order)
+            throws IOException {
+        if (!inPlace)
+            copy(input, output, size);
+        ConversionEngine engine = category.getEngine();
+        double factor = engine.getFactor(fromIndex, toIndex);
+        double offset = engine.getOffset(fromIndex, toIndex);
+        long chunkBytes = Math.max(1, CHUNK_BYTES / stride) * stride;
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (long position = 0; position < size; position += chunkBytes) {
+                long length = Math.min(chunkBytes, size - position);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+                ByteBuffer records = mapped.order(order);
+                for (int field = fieldOffset; field < length; field += stride)
+                    records.putDouble(field, Math.fma(records.getDouble(field), factor, offset));
+                ConverterMetrics.getInstance().recordConversions(category, fromIndex, toIndex, length / stride);
+            }
+        }
+    }
+
+    private static void copy(Path input, Path output, long size) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long position = 0; position < size; )
+                position += in.transferTo(position, size - position, out);
+        }
+    }
+
+    /**
+     * Runs from the command line:
+     * "--convert-binary from to input output [--stride bytes] [--field offset] [--big-endian]".
+     *
+     * @param args The arguments after "--convert-binary".
+     * @throws IOException Thrown if either file could not be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4)
+            throw new IllegalArgumentException("Usage: --convert-binary <from> <to> <input> <output> "
+                    + "[--stride bytes] [--field offset] [--big-endian]");
+        int stride = Double.BYTES;
+        int fieldOffset = 0;
+        ByteOrder order = ByteOrder.LITTLE_ENDIAN;
+        for (int i = 4; i < args.length; i++) {
+            switch (args[i]) {
+                case "--stride":
+                    stride = Integer.parseInt(args[++i]);
+                    break;
+                case "--field":
+                    fieldOffset = Integer.parseInt(args[++i]);
+                    break;
+                case "--big-endian":
+                    order = ByteOrder.BIG_ENDIAN;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        UnitRegistry registry = UnitRegistry.getDefault();
+        long from = requireUnit(registry, args[0]);
+        long to = requireUnit(registry, args[1]);
+        if (UnitRegistry.categoryOf(from) != UnitRegistry.categoryOf(to))
+            throw new IllegalArgumentException("Cannot convert " + args[0] + " to " + args[1]);
+        UnitCategory category = registry.getCategory(UnitRegistry.categoryOf(from));
+        long count = convert(category, UnitRegistry.unitOf(from), UnitRegistry.unitOf(to), Path.of(args[2]),
+                Path.of(args[3]), stride, fieldOffset, order);
+        System.err.println("Converted " + count + " values");
+    }
+
+    private static long requireUnit(UnitRegistry registry, String symbol) {
+        long unit = registry.findUnit(symbol);
+        if (unit < 0)
+            throw new IllegalArgumentException("Unknown unit: " + symbol);
+        return unit;
+    }
+}
@@ -1,17 +1,41 @@
 import javax.swing.*;
 import java.awt.event.ActionListener;
+import java.util.List;
 
 public class MenuBar extends JMenuBar {
-    public MenuBar(ActionListener actionListener) {
-        JMenu menu = new JMenu("Change unit");
+    private final ActionListener actionListener;
+    private final JMenu menu = new JMenu("Change unit");
 
-        menu.add(new CustomMenuItem("Length", actionListener));
-        menu.add(new CustomMenuItem("Temperature", actionListener));
-        menu.add(new CustomMenuItem("Time", actionListener));
-        //menu.add(new CustomMenuItem("Area", actionListener));
-        //menu.add(new CustomMenuItem("Volume", actionListener));
-        //menu.add(new CustomMenuItem("Mass", actionListener));
+    public MenuBar(ActionListener actionListener, List<String> categories) {
+        this.actionListener = actionListener;
+        setCategories(categories);
         add(menu);
+
+        JMenu viewMenu = new JMenu("View");
+        JCheckBoxMenuItem allUnitsItem = new JCheckBoxMenuItem("Convert to all units");
+        allUnitsItem.setActionCommand("all units");
+        allUnitsItem.addActionListener(actionListener);
+        viewMenu.add(allUnitsItem);
+        JMenuItem historyItem = new JMenuItem("History...");
+        historyItem.setActionCommand("history");
+        historyItem.addActionListener(actionListener);
+        viewMenu.add(historyItem);
+        JMenuItem sweepItem = new JMenuItem("Range table...");
+        sweepItem.setActionCommand("sweep");
+        sweepItem.addActionListener(actionListener);
+        viewMenu.add(sweepItem);
+        add(viewMenu);
+    }
+
+    /**
+     * Replaces the entries of the "Change unit" menu, e.g. after the unit definitions were reloaded.
+     *
+     * @param categories The category names in menu order.
+     */
+    public void setCategories(List<String> categories) {
+        menu.removeAll();
+        for (String category : categories)
+            menu.add(new CustomMenuItem(category, actionListener));
     }
 }
 
@@ -0,0 +1,245 @@
+import java.math.BigDecimal;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Formats doubles into a caller supplied StringBuilder, char array or byte array without creating formatters or
+ * intermediate Strings. All methods are stateless apart from a per-thread scratch buffer and are safe to call
+ * from any number of threads.
+ */
+public final class NumberFormatter {
+    /**
+     * Largest number of decimal places the fixed and scientific formats support.
+     */
+    public static final int MAX_DECIMAL_PLACES = 17;
+
+    /**
+     * Largest number of characters the shortest format writes.
+     */
+    public static final int MAX_SHORTEST_LENGTH = ShortestDecimal.MAX_LENGTH;
+
+    private static final DecimalFormatSymbols SYMBOLS = DecimalFormatSymbols.getInstance();
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private NumberFormatter() {
+    }
+
+    /**
+     * Appends the shortest decimal that reads back as the same double, dropping a trailing ".0"
+     * (e.g. 1.0 becomes "1", 0.5 stays "0.5").
+     *
+     * @param value  The value to format.
+     * @param output The builder to append to.
+     * @return The builder.
+     */
+    public static StringBuilder appendShortest(double value, StringBuilder output) {
+        int start = output.length();
+        output.append(value);
+        int length = output.length();
+        if (length - start >= 2 && output.charAt(length - 1) == '0' && output.charAt(length - 2) == '.')
+            output.setLength(length - 2);
+        return output;
+    }
+
+    /**
+     * Appends a value rounded half-even to a fixed number of decimal places, deciding by the exact binary value
+     * (e.g. 0.125 becomes "0.12" and 1.005 becomes "1.00"). This nearly always gives the same digits as
+     * {@code new DecimalFormat("0.00")}, but not for some values just above a decimal tie, which DecimalFormat
+     * rounds down: 5.0E-4 to 3 places is "0.001" here and "0.000" from DecimalFormat.
+     *
+     * @param value         The value to format.
+     * @param decimalPlaces The number of decimal places, 0 to {@link #MAX_DECIMAL_PLACES}.
+     * @param output        The builder to append to.
+     * @return The builder.
+     */
+    public static StringBuilder appendFixed(double value, int decimalPlaces, StringBuilder output) {
+        checkDecimalPlaces(decimalPlaces);
+        if (Double.isNaN(value))
+            return output.append(SYMBOLS.getNaN());
+        if (Double.doubleToRawLongBits(value) < 0)
+            output.append('-');
+        if (Double.isInfinite(value))
+            return output.append(SYMBOLS.getInfinity());
+
+        Scratch scratch = SCRATCH.get();
+        char[] digits = scratch.digits;
+        int pointPosition = scratch.decompose(Math.abs(value));
+        int digitCount = scratch.digitCount;
+
+        int cut = pointPosition + decimalPlaces;
+        if (cut < digitCount) {
+            boolean roundUp = false;
+            if (cut >= 0) {
+                char first = digits[cut];
+                boolean restIsZero = true;
+                for (int i = cut + 1; i < digitCount && restIsZero; i++)
+                    restIsZero = digits[i] == '0';
+                if (first != '5' || !restIsZero) {
+                    roundUp = first >= '5';
+                } else {
+                    // The shortest form sits on a tie, so let the exact binary value decide
+                    int comparison = scratch.compareToShortest(Math.abs(value));
+                    roundUp = comparison > 0 || (comparison == 0 && (digits[cut - 1] - '0') % 2 == 1);
+                }
+            }
+            digitCount = Math.max(cut, 0);
+            for (int i = digitCount - 1; roundUp && i >= 0; i--) {
+                if (digits[i] == '9') {
+                    digits[i] = '0';
+                } else {
+                    digits[i]++;
+                    roundUp = false;
+                }
+            }
+        }
+
+        int firstSignificant = 0;
+        while (firstSignificant < pointPosition - 1 && firstSignificant < digitCount && digits[firstSignificant] == '0')
+            firstSignificant++;
+        if (pointPosition <= 0)
+            output.append('0');
+        for (int i = firstSignificant; i < pointPosition; i++)
+            output.append(i < digitCount ? digits[i] : '0');
+        if (decimalPlaces > 0) {
+            output.append(SYMBOLS.getDecimalSeparator());
+            for (int i = pointPosition; i < pointPosition + decimalPlaces; i++)
+                output.append(i >= 0 && i < digitCount ? digits[i] : '0');
+        }
+        return output;
+    }
+
+    /**
+     * Appends a value as a mantissa with a fixed number of decimal places and a power of ten,
+     * e.g. "1.23 * 10^3".
+     *
+     * @param value         The value to format.
+     * @param decimalPlaces The number of decimal places of the mantissa, 0 to {@link #MAX_DECIMAL_PLACES}.
+     * @param output        The builder to append to.
+     * @return The builder.
+     */
+    public static StringBuilder appendScientific(double value, int decimalPlaces, StringBuilder output) {
+        checkDecimalPlaces(decimalPlaces);
+        int exponent = value == 0 ? 0 : (int) Math.floor(Math.log10(Math.abs(value)));
+        double mantissa = value / Math.pow(10, exponent);
+        return appendFixed(mantissa, decimalPlaces, output).append(" * 10^").append(exponent);
+    }
+
+    /**
+     * Writes the shortest round trip form of a value into a char array.
+     *
+     * @param value  The value to format.
+     * @param output The array to write to.
+     * @param offset The index to write the first character at.
+     * @return The number of characters written.
+     */
+    public static int formatShortest(double value, char[] output, int offset) {
+        return copy(appendShortest(value, scratch()), output, offset);
+    }
+
+    /**
+     * Writes the shortest round trip form of a value as ASCII into a byte array, without going through a
+     * StringBuilder. Gives the same text as {@link #appendShortest(double, StringBuilder)} on JDK 19 and later.
+     *
+     * @param value  The value to format.
+     * @param output The array to write to, with room for {@link #MAX_SHORTEST_LENGTH} bytes at the offset.
+     * @param offset The index to write the first byte at.
+     * @return The number of bytes written.
+     */
+    public static int formatShortest(double value, byte[] output, int offset) {
+        int length = ShortestDecimal.format(value, output, offset);
+        int end = offset + length;
+        if (length >= 2 && output[end - 1] == '0' && output[end - 2] == '.')
+            length -= 2;
+        return length;
+    }
+
+    /**
+     * Writes a value with a fixed number of decimal places into a char array.
+     *
+     * @param value         The value to format.
+     * @param decimalPlaces The number of decimal places.
+     * @param output        The array to write to.
+     * @param offset        The index to write the first character at.
+     * @return The number of characters written.
+     */
+    public static int formatFixed(double value, int decimalPlaces, char[] output, int offset) {
+        return copy(appendFixed(value, decimalPlaces, scratch()), output, offset);
+    }
+
+    /**
+     * Writes a value in scientific notation into a char array.
+     *
+     * @param value         The value to format.
+     * @param decimalPlaces The number of decimal places of the mantissa.
+     * @param output        The array to write to.
+     * @param offset        The index to write the first character at.
+     * @return The number of characters written.
+     */
+    public static int formatScientific(double value, int decimalPlaces, char[] output, int offset) {
+        return copy(appendScientific(value, decimalPlaces, scratch()), output, offset);
+    }
+
+    private static StringBuilder scratch() {
+        StringBuilder builder = SCRATCH.get().output;
+        builder.setLength(0);
+        return builder;
+    }
+
+    private static int copy(StringBuilder builder, char[] output, int offset) {
+        int length = builder.length();
+        builder.getChars(0, length, output, offset);
+        return length;
+    }
+
+    private static void checkDecimalPlaces(int decimalPlaces) {
+        if (decimalPlaces < 0 || decimalPlaces > MAX_DECIMAL_PLACES)
+            throw new IllegalArgumentException("Decimal places must be between 0 and " + MAX_DECIMAL_PLACES);
+    }
+
+    /**
+     * Per-thread buffers, reused by every call on that thread.
+     */
+    private static final class Scratch {
+        private final StringBuilder text = new StringBuilder(32);
+        private final StringBuilder output = new StringBuilder(32);
+        private final char[] digits = new char[40];
+        private int digitCount;
+
+        /**
+         * Splits the shortest decimal form of a non-negative value into {@link #digits}, with a leading
+         * zero so rounding can carry into it.
+         *
+         * @return The number of digits before the decimal point.
+         */
+        private int decompose(double value) {
+            text.setLength(0);
+            text.append(value);
+            digits[0] = '0';
+            digitCount = 1;
+            int pointPosition = -1;
+            int exponent = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char ch = text.charAt(i);
+                if (ch == '.') {
+                    pointPosition = digitCount;
+                } else if (ch == 'E') {
+                    exponent = Integer.parseInt(text, i + 1, text.length(), 10);
+                    break;
+                } else {
+                    digits[digitCount++] = ch;
+                }
+            }
+            if (pointPosition < 0)
+                pointPosition = digitCount;
+            return pointPosition + exponent;
+        }
+
+        /**
+         * Compares a value with the shortest decimal form last produced by {@link #decompose(double)}.
+         * Only needed on ties, so the BigDecimal allocation stays off the common path.
+         */
+        private int compareToShortest(double value) {
+            return new BigDecimal(value).compareTo(new BigDecimal(text.toString()));
+        }
+    }
+}
@@ -9,28 +9,44 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 public class NumericTextField extends JTextField {
+    /**
+     * Document events arriving within one frame of each other are collapsed into a single "calculate".
+     */
+    private static final int FRAME_MILLIS = 16;
+
+    private final Timer coalesceTimer;
+
     public NumericTextField(ActionListener actionListener) {
         super();
+        ActionEvent calculateEvent = new ActionEvent(this, 0, "calculate");
+        coalesceTimer = new Timer(FRAME_MILLIS, e -> actionListener.actionPerformed(calculateEvent));
+        coalesceTimer.setRepeats(false);
+
         PlainDocument doc = (PlainDocument) getDocument();
         doc.setDocumentFilter(new NumericFilter());
         getDocument().addDocumentListener(new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
-                actionListener.actionPerformed(new ActionEvent(this, 0, "calculate"));
+                scheduleCalculate();
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
-                actionListener.actionPerformed(new ActionEvent(this, 0, "calculate"));
+                scheduleCalculate();
             }
 
             @Override
             public void changedUpdate(DocumentEvent e) {
-                actionListener.actionPerformed(new ActionEvent(this, 0, "calculate"));
+                scheduleCalculate();
             }
         });
     }
 
+    private void scheduleCalculate() {
+        if (!coalesceTimer.isRunning())
+            coalesceTimer.start();
+    }
+
     private class NumericFilter extends DocumentFilter {
         private final String validCharacters = "0123456789.";
 
@@ -0,0 +1,289 @@
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * A reference table of evenly spaced values in one unit, e.g. 0 to 500 km in steps of 0.5 km, converted to
+ * several other units of the same category.
+ * <p>
+ * Nothing is stored: row k holds start + k * step, computed directly rather than by repeatedly adding the step,
+ * so the values do not drift, and each row is converted when it is asked for. When the start and step are short
+ * decimals, the value is worked out in whole multiples of their last decimal place and divided once, so row 3 of
+ * a sweep in steps of 0.1 is 0.3 rather than 0.30000000000000004. Large tables
+ * are written in chunks of {@value #CHUNK_ROWS} rows that are converted and formatted in parallel and written in
+ * order, with only a few chunks in memory at a time. Instances are immutable.
+ */
+public final class RangeSweep {
+    private static final int CHUNK_ROWS = 8192;
+
+    /**
+     * How many ulps of the range's magnitude a row may lie past the stop value and still count as reaching it
+     * despite rounding, e.g. so that 0 to 1 in steps of 0.1 has 11 rows.
+     */
+    private static final int STOP_ULPS = 4;
+
+    private static final int MAX_DECIMAL_PLACES = 15;
+    private static final double MAX_EXACT_INTEGER = 0x1p53;
+
+    private final UnitCategory category;
+    private final int fromIndex;
+    private final int[] toIndexes;
+    private final double start;
+    private final double step;
+    private final long rowCount;
+
+    // The start and step in units of their last decimal place, and that place as a divisor, or 0 if not exact
+    private final double scaledStart;
+    private final double scaledStep;
+    private final double divisor;
+
+    /**
+     * @param category  The category of the units.
+     * @param fromIndex Index of the unit the range is in.
+     * @param toIndexes Indexes of the units to convert to, in column order.
+     * @param start     The first value.
+     * @param stop      The last value, included if the steps reach it.
+     * @param step      The distance between values, negative to count down.
+     * @throws IllegalArgumentException Thrown if the step is zero or leads away from the stop value.
+     */
+    public RangeSweep(UnitCategory category, int fromIndex, int[] toIndexes, double start, double stop,
+                      double step) {
+        if (!Double.isFinite(start) || !Double.isFinite(stop) || !Double.isFinite(step) || step == 0)
+            throw new IllegalArgumentException("The range must be finite with a step other than zero");
+        double steps = (stop - start) / step;
+        if (steps < 0)
+            throw new IllegalArgumentException("A step of " + step + " never reaches " + stop + " from " + start);
+        double nearest = Math.ceil(steps);
+        if (nearest >= Long.MAX_VALUE - 1)
+            throw new IllegalArgumentException("Too many steps");
+        this.category = category;
+        this.fromIndex = fromIndex;
+        this.toIndexes = toIndexes.clone();
+        this.start = start;
+        this.step = step;
+
+        int places = Math.max(decimalPlaces(start), decimalPlaces(step));
+        double power = Math.pow(10, places);
+        double scaledStart = start * power;
+        double scaledStep = step * power;
+        boolean exact = places <= MAX_DECIMAL_PLACES && Math.rint(scaledStart) == scaledStart
+                && Math.rint(scaledStep) == scaledStep
+                && Math.abs(scaledStart) + Math.abs(scaledStep) * nearest < MAX_EXACT_INTEGER;
+        this.scaledStart = exact ? scaledStart : 0;
+        this.scaledStep = exact ? scaledStep : 0;
+        divisor = exact ? power : 0;
+
+        // The division may fall just short of a whole number of steps that lands on the stop value
+        double tolerance = STOP_ULPS * Math.ulp(Math.max(Math.abs(start), Math.abs(stop)));
+        long last = (long) (Math.abs(getValue((long) nearest) - stop) <= tolerance ? nearest : Math.floor(steps));
+        rowCount = last + 1;
+    }
+
+    /**
+     * @return The number of decimal places in the shortest decimal that reads back as the value.
+     */
+    private static int decimalPlaces(double value) {
+        return Math.max(0, BigDecimal.valueOf(value).stripTrailingZeros().scale());
+    }
+
+    public UnitCategory getCategory() {
+        return category;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The number of columns: the value followed by one column per target unit.
+     */
+    public int getColumnCount() {
+        return toIndexes.length + 1;
+    }
+
+    /**
+     * @param column A column of the table.
+     * @return The name of the unit in that column.
+     */
+    public String getColumnName(int column) {
+        return category.getUnit(column == 0 ? fromIndex : toIndexes[column - 1]);
+    }
+
+    /**
+     * @param row A row of the table.
+     * @return The value in the source unit.
+     */
+    public double getValue(long row) {
+        if (divisor != 0)
+            return Math.fma(row, scaledStep, scaledStart) / divisor; // Exact up to the one rounding division
+        return Math.fma(row, step, start);
+    }
+
+    /**
+     * @param row    A row of the table.
+     * @param column A column of the table.
+     * @return The value of the row in the unit of the column.
+     */
+    public double getValue(long row, int column) {
+        double value = getValue(row);
+        return column == 0 ? value : category.getEngine().convert(value, fromIndex, toIndexes[column - 1]);
+    }
+
+    /**
+     * Lazily produces the rows, each the value followed by its conversions. Rows are converted a chunk at a time
+     * and the stream splits evenly by chunk, so it can be made parallel.
+     *
+     * @return A stream of rows.
+     */
+    public Stream<double[]> rows() {
+        long chunks = (rowCount + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        return LongStream.range(0, chunks).mapToObj(chunk -> convertChunk(chunk * CHUNK_ROWS)).flatMap(columns ->
+                IntStream.range(0, columns[0].length).mapToObj(row -> {
+                    double[] values = new double[columns.length];
+                    for (int column = 0; column < columns.length; column++)
+                        values[column] = columns[column][row];
+                    return values;
+                }));
+    }
+
+    /**
+     * Writes the table as CSV, with a header row of unit names.
+     *
+     * @param writer  Where to write the table. It is not closed.
+     * @param threads The number of threads converting chunks.
+     * @throws IOException Thrown if the table could not be written.
+     */
+    public void writeCsv(Writer writer, int threads) throws IOException {
+        StringBuilder header = new StringBuilder();
+        for (int column = 0; column < getColumnCount(); column++) {
+            if (column > 0)
+                header.append(',');
+            header.append(getColumnName(column));
+        }
+        writer.append(header).append(System.lineSeparator());
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "range-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Submit a few chunks ahead of the writer, so memory holds a handful of chunks whatever the table size
+        BlockingQueue<Future<StringBuilder>> pending = new ArrayBlockingQueue<>(threads * 2);
+        long chunks = (rowCount + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        long submitted = 0;
+        try {
+            for (long written = 0; written < chunks; written++) {
+                while (submitted < chunks && pending.remainingCapacity() > 0) {
+                    long first = submitted++ * CHUNK_ROWS;
+                    pending.add(workers.submit(() -> formatChunk(first)));
+                }
+                writer.append(pending.remove().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the table", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The columns of up to {@value #CHUNK_ROWS} rows starting at {@code firstRow}.
+     */
+    private double[][] convertChunk(long firstRow) {
+        int rows = (int) Math.min(CHUNK_ROWS, rowCount - firstRow);
+        double[][] columns = new double[getColumnCount()][rows];
+        for (int i = 0; i < rows; i++)
+            columns[0][i] = getValue(firstRow + i);
+        for (int i = 0; i < toIndexes.length; i++)
+            BulkConverter.convert(category, columns[0], 0, columns[i + 1], 0, rows, fromIndex, toIndexes[i]);
+        return columns;
+    }
+
+    private StringBuilder formatChunk(long firstRow) {
+        double[][] columns = convertChunk(firstRow);
+        int rows = columns[0].length;
+        StringBuilder output = new StringBuilder(rows * columns.length * 12);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns.length; column++) {
+                if (column > 0)
+                    output.append(',');
+                NumberFormatter.appendShortest(columns[column][row], output);
+            }
+            output.append(System.lineSeparator());
+        }
+        return output;
+    }
+
+    /**
+     * Runs from the command line: "--sweep from start stop step to[,to...] [output] [--threads n]". Without an
+     * output file the table goes to standard output.
+     *
+     * @param args The arguments after "--sweep".
+     * @throws IOException Thrown if the table could not be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5)
+            throw new IllegalArgumentException("Usage: --sweep <from> <start> <stop> <step> <to>[,<to>...] "
+                    + "[output] [--threads n]");
+        Path output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 5; i < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                if (i + 1 >= args.length)
+                    throw new IllegalArgumentException("Missing value for --threads");
+                threads = Integer.parseInt(args[++i]);
+            } else if (output == null) {
+                output = Path.of(args[i]);
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        UnitRegistry registry = UnitRegistry.getDefault();
+        long from = registry.findUnit(args[0]);
+        if (from < 0)
+            throw new IllegalArgumentException("Unknown unit: " + args[0]);
+        String[] targets = args[4].split(",");
+        int[] toIndexes = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            long to = registry.findUnit(targets[i].trim());
+            if (to < 0 || UnitRegistry.categoryOf(to) != UnitRegistry.categoryOf(from))
+                throw new IllegalArgumentException("Cannot convert " + args[0] + " to " + targets[i].trim());
+            toIndexes[i] = UnitRegistry.unitOf(to);
+        }
+        RangeSweep sweep = new RangeSweep(registry.getCategory(UnitRegistry.categoryOf(from)),
+                UnitRegistry.unitOf(from), toIndexes, Double.parseDouble(args[1]), Double.parseDouble(args[2]),
+                Double.parseDouble(args[3]));
+
+        if (output == null) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out),
+                    StandardCharsets.UTF_8), 1 << 16);
+            sweep.writeCsv(writer, Math.max(1, threads));
+            writer.flush();
+        } else {
+            try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                sweep.writeCsv(writer, Math.max(1, threads));
+            }
+            System.err.println("Wrote " + sweep.getRowCount() + " rows");
+        }
+    }
+}
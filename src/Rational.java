@@ -0,0 +1,188 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * An exact fraction of two arbitrary-precision integers, used for conversion factors such as 1000/1609.344
+ * (kilometres to miles) or 1/3600 (seconds to hours) that no double can hold exactly. Fractions are kept in
+ * lowest terms with a positive denominator. Instances are immutable.
+ */
+public final class Rational implements Comparable<Rational> {
+    public static final Rational ZERO = new Rational(BigInteger.ZERO, BigInteger.ONE);
+    public static final Rational ONE = new Rational(BigInteger.ONE, BigInteger.ONE);
+
+    private final BigInteger numerator;
+    private final BigInteger denominator;
+
+    private Rational(BigInteger numerator, BigInteger denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    /**
+     * @param numerator   The numerator.
+     * @param denominator The denominator, not zero.
+     * @return The fraction in lowest terms.
+     * @throws ArithmeticException Thrown if the denominator is zero.
+     */
+    public static Rational of(BigInteger numerator, BigInteger denominator) {
+        if (denominator.signum() == 0)
+            throw new ArithmeticException("Division by zero");
+        if (denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+        BigInteger gcd = numerator.gcd(denominator);
+        if (!gcd.equals(BigInteger.ONE)) {
+            numerator = numerator.divide(gcd);
+            denominator = denominator.divide(gcd);
+        }
+        return new Rational(numerator, denominator);
+    }
+
+    public static Rational valueOf(long value) {
+        return new Rational(BigInteger.valueOf(value), BigInteger.ONE);
+    }
+
+    /**
+     * @param value A decimal, taken exactly as written (e.g. 0.1 is exactly one tenth).
+     * @return The same value as a fraction.
+     */
+    public static Rational valueOf(BigDecimal value) {
+        if (value.scale() <= 0)
+            return new Rational(value.toBigIntegerExact(), BigInteger.ONE);
+        return of(value.unscaledValue(), BigInteger.TEN.pow(value.scale()));
+    }
+
+    /**
+     * @param value A finite double, taken exactly as stored (e.g. 0.1 is slightly more than one tenth).
+     * @return The same value as a fraction.
+     * @throws NumberFormatException Thrown if the value is NaN or infinite.
+     */
+    public static Rational valueOf(double value) {
+        return valueOf(new BigDecimal(value));
+    }
+
+    /**
+     * Parses a decimal or a fraction of two decimals, e.g. "0.3048", "1e-6", "1/3600" or "1000/1609.344".
+     *
+     * @param text The text to parse.
+     * @return The exact value.
+     * @throws NumberFormatException Thrown if the text is not a number or fraction.
+     */
+    public static Rational parse(String text) {
+        int slash = text.indexOf('/');
+        if (slash < 0)
+            return valueOf(new BigDecimal(text.trim()));
+        Rational denominator = valueOf(new BigDecimal(text.substring(slash + 1).trim()));
+        if (denominator.signum() == 0)
+            throw new NumberFormatException("Division by zero in \"" + text + "\"");
+        return valueOf(new BigDecimal(text.substring(0, slash).trim())).divide(denominator);
+    }
+
+    public BigInteger getNumerator() {
+        return numerator;
+    }
+
+    public BigInteger getDenominator() {
+        return denominator;
+    }
+
+    public int signum() {
+        return numerator.signum();
+    }
+
+    public Rational add(Rational other) {
+        if (denominator.equals(other.denominator))
+            return of(numerator.add(other.numerator), denominator);
+        return of(numerator.multiply(other.denominator).add(other.numerator.multiply(denominator)),
+                denominator.multiply(other.denominator));
+    }
+
+    public Rational subtract(Rational other) {
+        return add(other.negate());
+    }
+
+    public Rational negate() {
+        return new Rational(numerator.negate(), denominator);
+    }
+
+    public Rational multiply(Rational other) {
+        return of(numerator.multiply(other.numerator), denominator.multiply(other.denominator));
+    }
+
+    /**
+     * @throws ArithmeticException Thrown if the divisor is zero.
+     */
+    public Rational divide(Rational other) {
+        return of(numerator.multiply(other.denominator), denominator.multiply(other.numerator));
+    }
+
+    /**
+     * @throws ArithmeticException Thrown if this is zero and the exponent is negative.
+     */
+    public Rational pow(int exponent) {
+        if (exponent < 0)
+            return of(denominator.pow(-exponent), numerator.pow(-exponent));
+        return new Rational(numerator.pow(exponent), denominator.pow(exponent));
+    }
+
+    /**
+     * Rounds to a number of decimal places, half to even.
+     *
+     * @param scale The number of decimal places.
+     * @return The nearest decimal with that scale.
+     */
+    public BigDecimal toBigDecimal(int scale) {
+        return new BigDecimal(numerator).divide(new BigDecimal(denominator), scale, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * @return The nearest double, rounding half to even like every other conversion to double.
+     */
+    public double doubleValue() {
+        if (numerator.signum() == 0)
+            return 0;
+        if (numerator.bitLength() <= 53 && denominator.bitLength() <= 53)
+            return numerator.doubleValue() / denominator.doubleValue(); // One correctly rounded division
+        // Divide to a 63 bit quotient and fold any remainder into its lowest bit, below the rounding position, so
+        // the conversion from long rounds exactly as the infinitely precise quotient would
+        BigInteger absolute = numerator.abs();
+        int shift = 62 - (absolute.bitLength() - denominator.bitLength());
+        BigInteger[] division = shift >= 0
+                ? absolute.shiftLeft(shift).divideAndRemainder(denominator)
+                : absolute.divideAndRemainder(denominator.shiftLeft(-shift));
+        long quotient = division[0].longValue() | (division[1].signum() != 0 ? 1 : 0);
+        double value = Math.scalb((double) quotient, -shift);
+        if (value < Double.MIN_NORMAL)
+            value = new BigDecimal(absolute).divide(new BigDecimal(denominator), MathContext.DECIMAL128)
+                    .doubleValue(); // Subnormal, so the scaling above would have rounded a second time
+        return numerator.signum() < 0 ? -value : value;
+    }
+
+    @Override
+    public int compareTo(Rational other) {
+        return numerator.multiply(other.denominator).compareTo(other.numerator.multiply(denominator));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Rational && numerator.equals(((Rational) other).numerator)
+                && denominator.equals(((Rational) other).denominator);
+    }
+
+    @Override
+    public int hashCode() {
+        return numerator.hashCode() * 31 + denominator.hashCode();
+    }
+
+    /**
+     * @return The fraction as "numerator/denominator", or just the numerator for whole numbers. The result can
+     * be read back with {@link #parse(String)}.
+     */
+    @Override
+    public String toString() {
+        return denominator.equals(BigInteger.ONE) ? numerator.toString() : numerator + "/" + denominator;
+    }
+}
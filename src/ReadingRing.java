@@ -0,0 +1,123 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded single-producer, single-consumer queue of (unit code, value) readings, stored off-heap in a direct
+ * buffer allocated once. Neither side allocates or locks: the producer claims slots, writes them and publishes
+ * its new tail with a release store, and the consumer reads up to that tail and hands the slots back the same
+ * way. Each side caches the other's position and only rereads it when the ring looks full or empty.
+ * <p>
+ * Exactly one thread may call the producer methods ({@link #tryClaim(int)}, {@link #put(long, int, double)} and
+ * {@link #publish(long)}) and exactly one thread may call {@link #drain(int[], double[], int)}.
+ */
+public final class ReadingRing {
+    private static final int SLOT_BYTES = 16;
+    private static final int VALUE_OFFSET = 8;
+
+    private final ByteBuffer slots;
+    private final int mask;
+    private final int capacity;
+
+    // Padded apart so the producer's and consumer's positions do not share a cache line
+    private final AtomicLong tail = new PaddedPosition();
+    private final AtomicLong head = new PaddedPosition();
+
+    // Producer's view
+    private long claimed;
+    private long cachedHead;
+
+    // Consumer's view
+    private long cachedTail;
+
+    /**
+     * @param capacity The number of readings the ring holds, rounded up to a power of two.
+     */
+    public ReadingRing(int capacity) {
+        if (capacity < 1 || capacity > (1 << 26))
+            throw new IllegalArgumentException("Ring capacity must be between 1 and " + (1 << 26));
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = this.capacity - 1;
+        slots = ByteBuffer.allocateDirect(this.capacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Claims room for a number of readings, all or nothing. Producer only.
+     *
+     * @param count The number of readings.
+     * @return The sequence of the first claimed slot, or -1 if the ring does not have room.
+     */
+    public long tryClaim(int count) {
+        long start = claimed;
+        if (start + count - cachedHead > capacity) {
+            cachedHead = head.getAcquire();
+            if (start + count - cachedHead > capacity)
+                return -1;
+        }
+        claimed = start + count;
+        return start;
+    }
+
+    /**
+     * Writes a reading into a claimed slot. Producer only.
+     *
+     * @param sequence A sequence within the last claim.
+     * @param unit     The unit code of the reading.
+     * @param value    The reading.
+     */
+    public void put(long sequence, int unit, double value) {
+        int offset = (int) (sequence & mask) * SLOT_BYTES;
+        slots.putInt(offset, unit);
+        slots.putDouble(offset + VALUE_OFFSET, value);
+    }
+
+    /**
+     * Makes every reading written up to a sequence visible to the consumer. Producer only.
+     *
+     * @param end The sequence after the last written slot, i.e. the claim's start plus its count.
+     */
+    public void publish(long end) {
+        tail.setRelease(end);
+    }
+
+    /**
+     * Takes up to {@code max} readings. Consumer only.
+     *
+     * @param units  Receives the unit codes.
+     * @param values Receives the readings.
+     * @param max    The most readings to take.
+     * @return The number of readings taken, zero if the ring is empty.
+     */
+    public int drain(int[] units, double[] values, int max) {
+        long start = head.get();
+        if (start == cachedTail) {
+            cachedTail = tail.getAcquire();
+            if (start == cachedTail)
+                return 0;
+        }
+        int count = (int) Math.min(max, cachedTail - start);
+        for (int i = 0; i < count; i++) {
+            int offset = (int) ((start + i) & mask) * SLOT_BYTES;
+            units[i] = slots.getInt(offset);
+            values[i] = slots.getDouble(offset + VALUE_OFFSET);
+        }
+        head.setRelease(start + count);
+        return count;
+    }
+
+    /**
+     * @return The number of readings waiting, as seen from any thread.
+     */
+    public int size() {
+        return (int) (tail.getAcquire() - head.getAcquire());
+    }
+
+    @SuppressWarnings("unused")
+    private static final class PaddedPosition extends AtomicLong {
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
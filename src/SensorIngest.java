@@ -0,0 +1,320 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Receives sensor readings as UDP datagrams, converts each to the configured unit of its category and
+ * republishes them in batches to a local UDP port.
+ * <p>
+ * A datagram holds one or more big-endian records of {@link #RECORD_BYTES} bytes: an int unit code, see
+ * {@link #unitCode(long)}, then the reading as a double. Republished datagrams use the same format with the
+ * target's unit code. Readings in a category without a target are passed on unchanged, and records with an
+ * unknown unit code are dropped.
+ * <p>
+ * A receiver thread copies records into a preallocated off-heap {@link ReadingRing}, and a converter thread
+ * drains it, converts through tables built once from the category engines, and sends. Neither thread allocates
+ * per packet. When the converter falls behind and the ring fills up, whole datagrams are dropped and counted.
+ * Unit codes are positions in the registry the ingest was created with, so they do not follow later reloads.
+ */
+public class SensorIngest implements Closeable {
+    /**
+     * The size of one record on the wire: a 4-byte unit code and an 8-byte reading.
+     */
+    public static final int RECORD_BYTES = 12;
+
+    /**
+     * The most records sent in one republished datagram.
+     */
+    public static final int MAX_RECORDS_PER_DATAGRAM = 512;
+
+    private static final int MAX_DATAGRAM_BYTES = 65507;
+    private static final int DRAIN_BATCH = 4096;
+    private static final int IDLE_SPINS = 1000;
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final ReadingRing ring;
+    private final DatagramChannel receiver;
+    private final DatagramChannel publisher;
+
+    // Indexed by category, then unit: the factor and offset to the category's target, and the code to publish
+    private final double[][] factors;
+    private final double[][] offsets;
+    private final int[][] publishCodes;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder published = new LongAdder();
+
+    private final CountDownLatch stopped = new CountDownLatch(2);
+    private volatile boolean running;
+
+    /**
+     * Creates an ingest. It does not receive anything until {@link #start()} is called.
+     *
+     * @param registry    The units the codes refer to.
+     * @param targets     The units to convert to, at most one per category, e.g. "C", "m" and "s".
+     * @param ingestPort  The UDP port to receive readings on, or 0 for any free port.
+     * @param publishPort The loopback UDP port to republish converted readings to.
+     * @param capacity    The number of readings the ring buffer holds.
+     * @throws IOException Thrown if a socket could not be opened.
+     */
+    public SensorIngest(UnitRegistry registry, List<String> targets, int ingestPort, int publishPort, int capacity)
+            throws IOException {
+        int categoryCount = registry.getCategoryNames().size();
+        int[] targetUnits = new int[categoryCount];
+        Arrays.fill(targetUnits, -1);
+        for (String target : targets) {
+            long unit = registry.findUnit(target);
+            if (unit < 0)
+                throw new IllegalArgumentException("Unknown unit: " + target);
+            if (targetUnits[UnitRegistry.categoryOf(unit)] >= 0)
+                throw new IllegalArgumentException("More than one target for "
+                        + registry.getCategory(UnitRegistry.categoryOf(unit)).getName());
+            targetUnits[UnitRegistry.categoryOf(unit)] = UnitRegistry.unitOf(unit);
+        }
+
+        factors = new double[categoryCount][];
+        offsets = new double[categoryCount][];
+        publishCodes = new int[categoryCount][];
+        for (int category = 0; category < categoryCount; category++) {
+            ConversionEngine engine = registry.getCategory(category).getEngine();
+            int unitCount = engine.getUnitCount();
+            int target = targetUnits[category];
+            factors[category] = new double[unitCount];
+            offsets[category] = new double[unitCount];
+            publishCodes[category] = new int[unitCount];
+            for (int unit = 0; unit < unitCount; unit++) {
+                factors[category][unit] = target < 0 ? 1 : engine.getFactor(unit, target);
+                offsets[category][unit] = target < 0 ? 0 : engine.getOffset(unit, target);
+                publishCodes[category][unit] = unitCode(category, target < 0 ? unit : target);
+            }
+        }
+
+        ring = new ReadingRing(capacity);
+        receiver = DatagramChannel.open();
+        receiver.setOption(StandardSocketOptions.SO_RCVBUF, 4 << 20);
+        receiver.bind(new InetSocketAddress(ingestPort));
+        publisher = DatagramChannel.open();
+        publisher.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), publishPort));
+    }
+
+    /**
+     * Gets the code a unit has on the wire.
+     *
+     * @param unit A unit from {@link UnitRegistry#findUnit(String)}.
+     * @return The category in the high 16 bits and the unit's index in the low 16 bits.
+     */
+    public static int unitCode(long unit) {
+        return unitCode(UnitRegistry.categoryOf(unit), UnitRegistry.unitOf(unit));
+    }
+
+    private static int unitCode(int category, int unit) {
+        if (category > 0xFFFF || unit > 0xFFFF)
+            throw new IllegalArgumentException("Unit " + category + ":" + unit + " has no 16-bit code");
+        return category << 16 | unit;
+    }
+
+    /**
+     * @return The port readings are received on.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) receiver.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Starts the receiver and converter threads. They keep the JVM running until {@link #close()} is called.
+     */
+    public void start() {
+        running = true;
+        Thread receive = new Thread(this::receive, "sensor-receive");
+        Thread convert = new Thread(this::convert, "sensor-convert");
+        receive.start();
+        convert.start();
+    }
+
+    private void receive() {
+        ByteBuffer packet = ByteBuffer.allocateDirect(MAX_DATAGRAM_BYTES);
+        try {
+            while (running) {
+                packet.clear();
+                if (receiver.receive(packet) == null)
+                    continue;
+                packet.flip();
+                int count = packet.remaining() / RECORD_BYTES;
+                if (count == 0 || packet.remaining() % RECORD_BYTES != 0) {
+                    rejected.increment();
+                    continue;
+                }
+                received.add(count);
+                long sequence = ring.tryClaim(count);
+                if (sequence < 0) {
+                    dropped.add(count);
+                    continue;
+                }
+                for (int i = 0; i < count; i++)
+                    ring.put(sequence + i, packet.getInt(), packet.getDouble());
+                ring.publish(sequence + count);
+            }
+        } catch (ClosedChannelException e) {
+            // Closed
+        } catch (IOException e) {
+            System.err.println("Sensor ingest stopped receiving: " + e.getMessage());
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    private void convert() {
+        int[] units = new int[DRAIN_BATCH];
+        double[] values = new double[DRAIN_BATCH];
+        ByteBuffer datagram = ByteBuffer.allocateDirect(MAX_RECORDS_PER_DATAGRAM * RECORD_BYTES);
+        int idle = 0;
+        try {
+            // Keep draining after a stop so readings already queued are still published
+            while (running || ring.size() > 0) {
+                int count = ring.drain(units, values, DRAIN_BATCH);
+                if (count == 0) {
+                    if (++idle > IDLE_SPINS)
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    else
+                        Thread.onSpinWait();
+                    continue;
+                }
+                idle = 0;
+                for (int i = 0; i < count; i++) {
+                    int category = units[i] >>> 16;
+                    int unit = units[i] & 0xFFFF;
+                    if (category >= factors.length || unit >= factors[category].length) {
+                        rejected.increment();
+                        continue;
+                    }
+                    datagram.putInt(publishCodes[category][unit]);
+                    datagram.putDouble(Math.fma(values[i], factors[category][unit], offsets[category][unit]));
+                    if (!datagram.hasRemaining())
+                        send(datagram);
+                }
+                if (datagram.position() > 0)
+                    send(datagram);
+            }
+        } catch (ClosedChannelException e) {
+            // Closed
+        } catch (IOException e) {
+            System.err.println("Sensor ingest stopped publishing: " + e.getMessage());
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    private void send(ByteBuffer datagram) throws IOException {
+        datagram.flip();
+        int records = datagram.remaining() / RECORD_BYTES;
+        try {
+            publisher.write(datagram);
+            published.add(records);
+        } catch (PortUnreachableException e) {
+            // Nobody is listening yet; UDP readings are only worth anything while fresh
+            dropped.add(records);
+        }
+        datagram.clear();
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    /**
+     * @return The number of readings dropped because the ring was full or nobody was listening.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return The number of malformed datagrams and records with unknown unit codes.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    /**
+     * Stops receiving, publishes the readings already queued and closes both sockets.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        receiver.close();
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publisher.close();
+    }
+
+    /**
+     * Runs from the command line:
+     * "--ingest port --publish port --target unit [--target unit ...] [--capacity readings]".
+     *
+     * @param args The arguments after "--ingest".
+     * @throws IOException Thrown if a socket could not be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5)
+            throw new IllegalArgumentException("Usage: --ingest <port> --publish <port> --target <unit> "
+                    + "[--target <unit> ...] [--capacity readings]");
+        int ingestPort = Integer.parseInt(args[0]);
+        int publishPort = -1;
+        int capacity = 1 << 20;
+        List<String> targets = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (i + 1 >= args.length)
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            switch (args[i]) {
+                case "--publish":
+                    publishPort = Integer.parseInt(args[++i]);
+                    break;
+                case "--target":
+                    targets.add(args[++i]);
+                    break;
+                case "--capacity":
+                    capacity = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (publishPort < 0)
+            throw new IllegalArgumentException("Missing --publish <port>");
+
+        SensorIngest ingest = new SensorIngest(UnitRegistry.getDefault(), targets, ingestPort, publishPort, capacity);
+        ingest.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                ingest.close();
+            } catch (IOException e) {
+                // Exiting anyway
+            }
+            System.err.println("Received " + ingest.getReceived() + ", published " + ingest.getPublished()
+                    + ", dropped " + ingest.getDropped() + ", rejected " + ingest.getRejected());
+        }));
+        System.err.println("Receiving readings on UDP port " + ingest.getPort() + ", publishing to "
+                + InetAddress.getLoopbackAddress().getHostAddress() + ":" + publishPort);
+    }
+}
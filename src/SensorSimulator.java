@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stands in for field devices when testing {@link SensorIngest}: sends random readings in mixed units to a UDP
+ * port on the loopback interface, several records per datagram, at a steady rate.
+ */
+public final class SensorSimulator {
+    private static final String[] DEFAULT_UNITS = {"F", "ft", "ms"};
+
+    private SensorSimulator() {
+    }
+
+    /**
+     * Sends readings.
+     *
+     * @param registry          The units the codes refer to.
+     * @param units             The units to send readings in, chosen at random per reading.
+     * @param port              The loopback UDP port to send to.
+     * @param readingsPerSecond The rate to send at.
+     * @param readings          The number of readings to send.
+     * @param perDatagram       The number of readings in each datagram.
+     * @throws IOException Thrown if a datagram could not be sent.
+     */
+    public static void send(UnitRegistry registry, String[] units, int port, int readingsPerSecond, long readings,
+                            int perDatagram) throws IOException {
+        int[] codes = new int[units.length];
+        for (int i = 0; i < units.length; i++) {
+            long unit = registry.findUnit(units[i]);
+            if (unit < 0)
+                throw new IllegalArgumentException("Unknown unit: " + units[i]);
+            codes[i] = SensorIngest.unitCode(unit);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ByteBuffer datagram = ByteBuffer.allocateDirect(perDatagram * SensorIngest.RECORD_BYTES);
+        long nanosPerDatagram = 1_000_000_000L * perDatagram / Math.max(1, readingsPerSecond);
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            long next = System.nanoTime();
+            for (long sent = 0; sent < readings; sent += perDatagram) {
+                datagram.clear();
+                int count = (int) Math.min(perDatagram, readings - sent);
+                for (int i = 0; i < count; i++) {
+                    datagram.putInt(codes[random.nextInt(codes.length)]);
+                    datagram.putDouble(random.nextDouble(0, 1000));
+                }
+                datagram.flip();
+                channel.write(datagram);
+                next += nanosPerDatagram;
+                long wait = next - System.nanoTime();
+                if (wait > 0)
+                    LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    /**
+     * Runs from the command line:
+     * "--simulate-sensors port [--rate readings/s] [--count readings] [--batch readings] [--units F,ft,ms]".
+     *
+     * @param args The arguments after "--simulate-sensors".
+     * @throws IOException Thrown if a datagram could not be sent.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1)
+            throw new IllegalArgumentException("Usage: --simulate-sensors <port> [--rate readings/s] "
+                    + "[--count readings] [--batch readings] [--units F,ft,ms]");
+        int port = Integer.parseInt(args[0]);
+        int rate = 100_000;
+        long count = 1_000_000;
+        int batch = 32;
+        String[] units = DEFAULT_UNITS;
+        for (int i = 1; i < args.length; i++) {
+            if (i + 1 >= args.length)
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            switch (args[i]) {
+                case "--rate":
+                    rate = Integer.parseInt(args[++i]);
+                    break;
+                case "--count":
+                    count = Long.parseLong(args[++i]);
+                    break;
+                case "--batch":
+                    batch = Integer.parseInt(args[++i]);
+                    break;
+                case "--units":
+                    units = args[++i].split(",");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (batch < 1 || batch > SensorIngest.MAX_RECORDS_PER_DATAGRAM)
+            throw new IllegalArgumentException("Batch must be between 1 and "
+                    + SensorIngest.MAX_RECORDS_PER_DATAGRAM);
+        send(UnitRegistry.getDefault(), units, port, rate, count, batch);
+        System.err.println("Sent " + count + " readings");
+    }
+}
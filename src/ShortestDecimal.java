@@ -0,0 +1,297 @@
+import java.math.BigInteger;
+
+/**
+ * Writes the shortest decimal that reads back as the same double straight into a byte array, for the text
+ * streaming modes where going through a StringBuilder and a char array costs more than the conversion itself.
+ * <p>
+ * This is the Schubfach algorithm by Raffaello Giulietti, the one behind {@link Double#toString(double)} since
+ * JDK 19, and gives the same digits and layout: plain notation from 10^-3 up to 10^7 and computerized scientific
+ * notation ("1.0E7") outside it. The 126-bit approximations of the powers of ten it needs are worked out once,
+ * when the class is first used. Calls allocate nothing and are safe from any thread.
+ */
+final class ShortestDecimal {
+    /**
+     * The most bytes {@link #format(double, byte[], int)} writes, e.g. "-2.2250738585072014E-308".
+     */
+    static final int MAX_LENGTH = 24;
+
+    private static final int P = 53;
+    private static final int Q_MIN = -1074;
+    private static final long C_MIN = 1L << P - 1;
+    private static final long C_TINY = 3;
+    private static final int BQ_MASK = 0x7FF;
+    private static final long T_MASK = (1L << P - 1) - 1;
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final int H = 17;
+    private static final long MASK_63 = (1L << 63) - 1;
+    private static final int MASK_28 = (1 << 28) - 1;
+
+    private static final BigInteger FIVE = BigInteger.valueOf(5);
+
+    private static final long[] POWERS_OF_TEN = new long[H + 1];
+
+    /**
+     * For each k from {@link #K_MIN} to {@link #K_MAX}, g = floor(10^-k 2^-r) + 1 for the r that puts it between
+     * 2^125 and 2^126, stored as its upper and lower 63 bits.
+     */
+    private static final long[] G = new long[(K_MAX - K_MIN + 1) * 2];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= H; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        // 10^-k 2^-r = 5^-k 2^(-k - r), so only a power of five has to be kept exactly, one step at a time
+        BigInteger power = BigInteger.ONE;
+        for (int k = 0; k >= K_MIN; k--) {
+            storeG(k, power.shiftLeft(-k - (flog2pow10(-k) - 125)));
+            power = power.multiply(FIVE);
+        }
+        power = FIVE;
+        for (int k = 1; k <= K_MAX; k++) {
+            storeG(k, BigInteger.ONE.shiftLeft(-k - (flog2pow10(-k) - 125)).divide(power));
+            power = power.multiply(FIVE);
+        }
+    }
+
+    private ShortestDecimal() {
+    }
+
+    /**
+     * Stores g = floor(10^-k 2^-r) + 1 for k as its two 63-bit halves.
+     */
+    private static void storeG(int k, BigInteger floor) {
+        BigInteger g = floor.add(BigInteger.ONE);
+        G[(k - K_MIN) * 2] = g.shiftRight(63).longValueExact();
+        G[(k - K_MIN) * 2 + 1] = g.longValue() & MASK_63;
+    }
+
+    /**
+     * Writes a value the way {@link Double#toString(double)} does on JDK 19 and later, e.g. "1.0", "0.001",
+     * "1.0E-4", "NaN" or "-Infinity".
+     *
+     * @param value  The value to format.
+     * @param output The array to write ASCII to, with room for {@link #MAX_LENGTH} bytes at the offset.
+     * @param offset The index to write the first byte at.
+     * @return The number of bytes written.
+     */
+    static int format(double value, byte[] output, int offset) {
+        long bits = Double.doubleToRawLongBits(value);
+        long t = bits & T_MASK;
+        int bq = (int) (bits >>> P - 1) & BQ_MASK;
+        if (bq == BQ_MASK) {
+            if (t != 0)
+                return ascii("NaN", output, offset);
+            return ascii(bits > 0 ? "Infinity" : "-Infinity", output, offset);
+        }
+        int position = offset;
+        if (bits < 0)
+            output[position++] = '-';
+        if (bq != 0) {
+            int mq = -Q_MIN + 1 - bq;
+            long c = C_MIN | t;
+            // Whole numbers below 2^53 are their own shortest decimal
+            if (0 < mq && mq < P) {
+                long f = c >> mq;
+                if (f << mq == c)
+                    return toChars(f, 0, output, position) - offset;
+            }
+            return toDecimal(-mq, c, 0, output, position) - offset;
+        }
+        if (t != 0)
+            return (t < C_TINY ? toDecimal(Q_MIN, 10 * t, -1, output, position)
+                    : toDecimal(Q_MIN, t, 0, output, position)) - offset;
+        output[position++] = '0';
+        output[position++] = '.';
+        output[position++] = '0';
+        return position - offset;
+    }
+
+    private static int ascii(String text, byte[] output, int offset) {
+        for (int i = 0; i < text.length(); i++)
+            output[offset + i] = (byte) text.charAt(i);
+        return text.length();
+    }
+
+    /**
+     * Finds the shortest decimal in the rounding interval of c 2^q, preferring the one closest to it.
+     */
+    private static int toDecimal(int q, long c, int dk, byte[] output, int position) {
+        int out = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        // The interval is asymmetric at powers of two, where the gap below is half the gap above
+        if (c != C_MIN || q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+        long g1 = G[(k - K_MIN) * 2];
+        long g0 = G[(k - K_MIN) * 2 + 1];
+
+        long vb = roundToOdd(g1, g0, cb << h);
+        long vbl = roundToOdd(g1, g0, cbl << h);
+        long vbr = roundToOdd(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // Try one digit less first: s rounded down and up to a multiple of ten
+            long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin)
+                return toChars(upin ? sp10 : tp10, k, output, position);
+        }
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win)
+            return toChars(uin ? s : t, k + dk, output, position);
+        // Both are in the interval, so take the closer one, and the even one on a tie
+        long cmp = vb - (s + t << 1);
+        return toChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, output, position);
+    }
+
+    /**
+     * Computes g cp / 2^127 with g = g1 2^63 + g0, rounded to odd so it keeps whether it was exact.
+     */
+    private static long roundToOdd(long g1, long g0, long cp) {
+        long x1 = Math.multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = Math.multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    /**
+     * Writes f 10^e, where f has at most 17 digits.
+     */
+    private static int toChars(long f, int e, byte[] output, int position) {
+        int length = flog10pow2(Long.SIZE - Long.numberOfLeadingZeros(f));
+        if (f >= POWERS_OF_TEN[length])
+            length++;
+        // Scale to exactly 17 digits, f 10^(e - 17), and split them as 1 + 8 + 8
+        f *= POWERS_OF_TEN[H - length];
+        e += length;
+        long hm = Math.multiplyHigh(f, 193_428_131_138_340_668L) >>> 20;
+        int l = (int) (f - 100_000_000L * hm);
+        int h = (int) (hm * 1_441_151_881L >>> 57);
+        int m = (int) (hm - 100_000_000 * h);
+
+        if (0 < e && e <= 7) {
+            // Plain, with e digits before the point
+            output[position++] = (byte) ('0' + h);
+            int y = fraction(m);
+            int i = 1;
+            for (; i < e; i++) {
+                int d = 10 * y;
+                output[position++] = (byte) ('0' + (d >>> 28));
+                y = d & MASK_28;
+            }
+            output[position++] = '.';
+            for (; i <= 8; i++) {
+                int d = 10 * y;
+                output[position++] = (byte) ('0' + (d >>> 28));
+                y = d & MASK_28;
+            }
+            return lowDigits(l, output, position);
+        }
+        if (-3 < e && e <= 0) {
+            // Plain, below one
+            output[position++] = '0';
+            output[position++] = '.';
+            for (; e < 0; e++)
+                output[position++] = '0';
+            output[position++] = (byte) ('0' + h);
+            position = eightDigits(m, output, position);
+            return lowDigits(l, output, position);
+        }
+        output[position++] = (byte) ('0' + h);
+        output[position++] = '.';
+        position = eightDigits(m, output, position);
+        position = lowDigits(l, output, position);
+        return exponent(e - 1, output, position);
+    }
+
+    private static int lowDigits(int l, byte[] output, int position) {
+        if (l != 0)
+            position = eightDigits(l, output, position);
+        // Drop trailing zeros, but keep one digit after the point
+        while (output[position - 1] == '0')
+            position--;
+        if (output[position - 1] == '.')
+            position++;
+        return position;
+    }
+
+    /**
+     * Writes a number below 10^8 as eight digits, left to right, with one multiplication per digit.
+     */
+    private static int eightDigits(int m, byte[] output, int position) {
+        int y = fraction(m);
+        for (int i = 0; i < 8; i++) {
+            int d = 10 * y;
+            output[position++] = (byte) ('0' + (d >>> 28));
+            y = d & MASK_28;
+        }
+        return position;
+    }
+
+    /**
+     * @return floor((a + 1) 2^28 / 10^8) - 1, the digits of a as a 28-bit binary fraction.
+     */
+    private static int fraction(int a) {
+        return (int) (Math.multiplyHigh((long) (a + 1) << 28, 193_428_131_138_340_668L) >>> 20) - 1;
+    }
+
+    private static int exponent(int e, byte[] output, int position) {
+        output[position++] = 'E';
+        if (e < 0) {
+            output[position++] = '-';
+            e = -e;
+        }
+        if (e >= 100) {
+            int d = e * 1_311 >>> 17;
+            output[position++] = (byte) ('0' + d);
+            e -= 100 * d;
+            int t = e * 103 >>> 10;
+            output[position++] = (byte) ('0' + t);
+            output[position++] = (byte) ('0' + e - 10 * t);
+        } else if (e >= 10) {
+            int t = e * 103 >>> 10;
+            output[position++] = (byte) ('0' + t);
+            output[position++] = (byte) ('0' + e - 10 * t);
+        } else {
+            output[position++] = (byte) ('0' + e);
+        }
+        return position;
+    }
+
+    /**
+     * @return floor(q log10(2)).
+     */
+    private static int flog10pow2(int q) {
+        return (int) (q * 661_971_961_083L >> 41);
+    }
+
+    /**
+     * @return floor(log10(3/4 2^q)).
+     */
+    private static int flog10threeQuartersPow2(int q) {
+        return (int) (q * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+
+    /**
+     * @return floor(e log2(10)).
+     */
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+}
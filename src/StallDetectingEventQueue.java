@@ -0,0 +1,48 @@
+import java.awt.*;
+import java.awt.event.InvocationEvent;
+
+/**
+ * Event queue that times every event it dispatches and reports those that take longer than the
+ * {@link ConverterMetrics} stall threshold, such as a slow list selection listener.
+ */
+public class StallDetectingEventQueue extends EventQueue {
+    private final ConverterMetrics metrics;
+
+    private StallDetectingEventQueue(ConverterMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Replaces the system event queue with one that reports stalls to the given metrics.
+     *
+     * @param metrics The metrics to report to.
+     */
+    public static void install(ConverterMetrics metrics) {
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new StallDetectingEventQueue(metrics));
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        long start = System.nanoTime();
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (elapsed > metrics.getStallThresholdNanos())
+                metrics.recordEdtStall(describe(event), elapsed);
+        }
+    }
+
+    /**
+     * Names an event by its type and the component it was sent to, using the component's name when it has one.
+     */
+    private static String describe(AWTEvent event) {
+        String type = event.getClass().getSimpleName() + " " + event.getID();
+        Object source = event.getSource();
+        if (event instanceof InvocationEvent)
+            return type + " " + event.paramString();
+        if (source instanceof Component && ((Component) source).getName() != null)
+            return type + " on " + ((Component) source).getName();
+        return type + " on " + (source == null ? "null" : source.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records how long each launch phase takes, from entering {@code main} to the first paint of the main window.
+ * <p>
+ * Setting the system property {@value #REPORT_PROPERTY} prints the phases to stderr once the window has been
+ * painted. Setting {@value #EXIT_PROPERTY} exits straight after the first paint, which lets a launch be used as
+ * the training run for a class data sharing archive (see "scripts/create-cds-archive.sh").
+ */
+public final class StartupTimer {
+    /**
+     * System property that prints the launch phases after the first paint.
+     */
+    public static final String REPORT_PROPERTY = "unitconverter.startupReport";
+
+    /**
+     * System property that exits the application after the first paint.
+     */
+    public static final String EXIT_PROPERTY = "unitconverter.exitAfterStartup";
+
+    private static final long START = System.nanoTime();
+    private static final List<String> PHASES = new ArrayList<>();
+    private static final List<Long> TIMES = new ArrayList<>();
+    private static boolean finished = false;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Starts timing. Called first thing in {@code main} so the clock starts there.
+     */
+    public static void start() {
+        mark("main");
+    }
+
+    /**
+     * Records the end of a launch phase.
+     *
+     * @param phase A short name for the phase that just finished.
+     */
+    public static synchronized void mark(String phase) {
+        if (finished)
+            return;
+        PHASES.add(phase);
+        TIMES.add(System.nanoTime());
+    }
+
+    /**
+     * Records the first paint of the main window and reports or exits if requested. Later calls do nothing.
+     */
+    public static void firstPaint() {
+        synchronized (StartupTimer.class) {
+            if (finished)
+                return;
+            mark("first paint");
+            finished = true;
+        }
+        if (Boolean.getBoolean(REPORT_PROPERTY))
+            report(System.err);
+        if (Boolean.getBoolean(EXIT_PROPERTY))
+            System.exit(0);
+    }
+
+    /**
+     * Prints each phase with the milliseconds since {@code main} and since the previous phase.
+     *
+     * @param output The stream to print to.
+     */
+    public static synchronized void report(PrintStream output) {
+        output.println("Startup phases (ms since main, ms for phase):");
+        ProcessHandle.current().info().startInstant().ifPresent(jvmStart -> {
+            double sinceJvmStart = Duration.between(jvmStart, Instant.now()).toNanos() / 1e6;
+            double sinceMain = (System.nanoTime() - START) / 1e6;
+            output.printf("  %-16s %8.1f%n", "JVM to main", sinceJvmStart - sinceMain);
+        });
+        long previous = START;
+        for (int i = 0; i < PHASES.size(); i++) {
+            long time = TIMES.get(i);
+            output.printf("  %-16s %8.1f %8.1f%n", PHASES.get(i), (time - START) / 1e6, (time - previous) / 1e6);
+            previous = time;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Converts a stream of numbers, one per line, from one unit to another, for use as a filter in shell pipelines:
+ * {@code java -jar UnitConverter.jar --from mi --to km < in.txt > out.txt}.
+ * <p>
+ * Input is read into one large reusable byte buffer and every complete line in it is parsed in place, without
+ * decoding to a String. The numbers of a buffer are converted together by {@link BulkConverter} and formatted
+ * into an output buffer that is written out in large blocks. Whitespace around a number is kept, so CRLF line
+ * endings and indentation survive, and lines that are not a number are copied as is.
+ */
+public final class StreamConverter {
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    /**
+     * Powers of ten that are exact as doubles, for the fast parsing path.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final UnitCategory category;
+    private final int fromIndex;
+    private final int toIndex;
+
+    private byte[] input = new byte[BUFFER_BYTES];
+    private final byte[] output = new byte[BUFFER_BYTES];
+    private int outputLength;
+
+    // Per buffer: the value of each line and where its number starts and ends, or a start of -1 for other lines
+    private double[] values = new double[BUFFER_BYTES / 8];
+    private int[] lineStarts = new int[BUFFER_BYTES / 8];
+    private int[] numberStarts = new int[BUFFER_BYTES / 8];
+    private int[] numberEnds = new int[BUFFER_BYTES / 8];
+
+    /**
+     * @param category  The category of the units.
+     * @param fromIndex Index of the unit the input is in.
+     * @param toIndex   Index of the desired unit.
+     */
+    public StreamConverter(UnitCategory category, int fromIndex, int toIndex) {
+        this.category = category;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+    }
+
+    /**
+     * Converts every line of a stream. Output is held back while more input is ready and written whenever the
+     * input would block, so the filter also works on live streams such as {@code tail -f}. Neither stream is
+     * closed.
+     *
+     * @param in  The numbers to convert, one per line.
+     * @param out Where to write the converted lines.
+     * @return The number of values converted.
+     * @throws IOException Thrown if either stream fails.
+     */
+    public long convert(InputStream in, OutputStream out) throws IOException {
+        long converted = 0;
+        int length = 0;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            int read = in.read(input, length, input.length - length);
+            if (read < 0)
+                endOfInput = true;
+            else
+                length += read;
+
+            int end = endOfInput ? length : lastLineEnd(length);
+            if (end <= 0) {
+                // A single line fills the buffer, so make room for the rest of it
+                if (length == input.length)
+                    input = Arrays.copyOf(input, input.length * 2);
+                continue;
+            }
+            converted += convertLines(end, out);
+            System.arraycopy(input, end, input, 0, length - end);
+            length -= end;
+            if (!endOfInput && in.available() == 0) {
+                out.write(output, 0, outputLength);
+                outputLength = 0;
+                out.flush();
+            }
+        }
+        out.write(output, 0, outputLength);
+        outputLength = 0;
+        out.flush();
+        return converted;
+    }
+
+    /**
+     * @return The index just past the last newline, or -1 if there is none.
+     */
+    private int lastLineEnd(int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (input[i] == '\n')
+                return i + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Parses, converts and writes the lines in {@code input[0, end)}.
+     */
+    private long convertLines(int end, OutputStream out) throws IOException {
+        int lines = 0;
+        int count = 0;
+        for (int start = 0; start < end; ) {
+            int lineEnd = start;
+            while (lineEnd < end && input[lineEnd] != '\n')
+                lineEnd++;
+            if (lineEnd < end)
+                lineEnd++;
+            ensureLineCapacity(lines + 1);
+            lineStarts[lines] = start;
+            parseLine(start, lineEnd, lines);
+            if (numberStarts[lines] >= 0)
+                count++;
+            lines++;
+            start = lineEnd;
+        }
+
+        BulkConverter.convert(category, values, 0, values, 0, lines, fromIndex, toIndex);
+
+        for (int line = 0; line < lines; line++) {
+            int start = lineStarts[line];
+            int lineEnd = line + 1 < lines ? lineStarts[line + 1] : end;
+            int numberStart = numberStarts[line];
+            if (numberStart < 0) {
+                write(start, lineEnd - start, out);
+            } else {
+                write(start, numberStart - start, out);
+                writeNumber(values[line], out);
+                write(numberEnds[line], lineEnd - numberEnds[line], out);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies input bytes to the output buffer, writing the buffer out first if they do not fit.
+     */
+    private void write(int offset, int length, OutputStream out) throws IOException {
+        if (outputLength + length > output.length) {
+            out.write(output, 0, outputLength);
+            outputLength = 0;
+        }
+        if (length > output.length) {
+            out.write(input, offset, length);
+        } else {
+            System.arraycopy(input, offset, output, outputLength, length);
+            outputLength += length;
+        }
+    }
+
+    private void writeNumber(double value, OutputStream out) throws IOException {
+        if (outputLength + NumberFormatter.MAX_SHORTEST_LENGTH > output.length) {
+            out.write(output, 0, outputLength);
+            outputLength = 0;
+        }
+        outputLength += NumberFormatter.formatShortest(value, output, outputLength);
+    }
+
+    private void ensureLineCapacity(int lines) {
+        if (lines <= values.length)
+            return;
+        int capacity = values.length * 2;
+        values = Arrays.copyOf(values, capacity);
+        lineStarts = Arrays.copyOf(lineStarts, capacity);
+        numberStarts = Arrays.copyOf(numberStarts, capacity);
+        numberEnds = Arrays.copyOf(numberEnds, capacity);
+    }
+
+    /**
+     * Finds the number on a line, skipping surrounding whitespace, and stores it for {@code line}. Lines with
+     * anything else on them, including "NaN", get a value of NaN and a number start of -1.
+     */
+    private void parseLine(int start, int end, int line) {
+        int first = start;
+        while (first < end && isWhitespace(input[first]))
+            first++;
+        int last = end;
+        while (last > first && isWhitespace(input[last - 1]))
+            last--;
+        double value = first < last ? parse(input, first, last) : Double.NaN;
+        if (Double.isNaN(value)) {
+            numberStarts[line] = -1;
+        } else {
+            numberStarts[line] = first;
+            numberEnds[line] = last;
+        }
+        values[line] = value;
+    }
+
+    /**
+     * Parses a decimal number from bytes. Numbers with at most 15 significant digits and no exponent are
+     * computed directly, which is exact because both the digits and the power of ten are exact doubles;
+     * anything else goes through {@link Double#parseDouble(String)}.
+     *
+     * @return The value, or NaN if the bytes are not a number.
+     */
+    static double parse(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+'))
+            negative = bytes[i++] == '-';
+        long mantissa = 0;
+        int digitCount = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                // Leading zeros are not significant. Past 18 digits the mantissa overflows, but then the slow
+                // path is taken anyway
+                if (mantissa != 0)
+                    digitCount++;
+                if (point)
+                    fractionDigits++;
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        int signLength = i > start && (bytes[start] == '-' || bytes[start] == '+') ? 1 : 0;
+        boolean hasDigits = i - start - signLength - (point ? 1 : 0) > 0;
+        if (i == end && hasDigits && digitCount <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+            double value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        return parseSlow(bytes, start, end);
+    }
+
+    private static double parseSlow(byte[] bytes, int start, int end) {
+        byte first = bytes[start];
+        // Double.parseDouble also accepts suffixes like "1d" and "1f", which are not numbers in a text file
+        if (!(first >= '0' && first <= '9' || first == '.' || first == '-' || first == '+' || first == 'I'))
+            return Double.NaN;
+        byte last = bytes[end - 1];
+        if (!(last >= '0' && last <= '9' || last == '.' || last == 'y'))
+            return Double.NaN;
+        try {
+            return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Runs from the command line: "--from unit --to unit", reading standard input and writing standard output.
+     *
+     * @param args The arguments, starting with "--from".
+     * @throws IOException Thrown if either stream fails.
+     */
+    public static void main(String[] args) throws IOException {
+        String from = null;
+        String to = null;
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 < args.length && args[i].equals("--from"))
+                from = args[++i];
+            else if (i + 1 < args.length && args[i].equals("--to"))
+                to = args[++i];
+            else
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+        }
+        if (from == null || to == null)
+            throw new IllegalArgumentException("Usage: --from <unit> --to <unit> < input > output");
+
+        UnitRegistry registry = UnitRegistry.getDefault();
+        long fromUnit = registry.findUnit(from);
+        long toUnit = registry.findUnit(to);
+        if (fromUnit < 0 || toUnit < 0 || UnitRegistry.categoryOf(fromUnit) != UnitRegistry.categoryOf(toUnit))
+            throw new IllegalArgumentException("Cannot convert " + from + " to " + to);
+        StreamConverter converter = new StreamConverter(
+                registry.getCategory(UnitRegistry.categoryOf(fromUnit)),
+                UnitRegistry.unitOf(fromUnit), UnitRegistry.unitOf(toUnit));
+        // The raw descriptors skip System.in's and System.out's own buffering and locking
+        converter.convert(new FileInputStream(FileDescriptor.in), new FileOutputStream(FileDescriptor.out));
+    }
+}
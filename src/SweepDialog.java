@@ -0,0 +1,111 @@
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Builds a reference table of a range of values in one unit converted to other units of the category, and
+ * saves it as CSV.
+ */
+public class SweepDialog extends JDialog {
+    private final UnitCategory category;
+    private final SweepTableModel model = new SweepTableModel();
+    private final JComboBox<String> fromBox;
+    private final JList<String> toList;
+    private final JTextField startField = new JTextField("0", 8);
+    private final JTextField stopField = new JTextField("100", 8);
+    private final JTextField stepField = new JTextField("1", 8);
+    private final JButton saveButton = new JButton("Save CSV...");
+
+    public SweepDialog(Frame owner, UnitCategory category, int fromIndex, int toIndex) {
+        super(owner, "Range table - " + category.getName(), false);
+        this.category = category;
+        String[] units = new String[category.getUnitCount()];
+        for (int i = 0; i < units.length; i++)
+            units[i] = category.getUnit(i);
+        fromBox = new JComboBox<>(units);
+        fromBox.setSelectedIndex(fromIndex);
+        toList = new JList<>(units);
+        toList.setSelectedIndex(toIndex);
+        toList.setVisibleRowCount(6);
+
+        JButton generateButton = new JButton("Generate");
+        generateButton.addActionListener(e -> generate());
+        saveButton.addActionListener(e -> save());
+        saveButton.setEnabled(false);
+
+        JPanel range = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        range.add(new JLabel("From"));
+        range.add(fromBox);
+        range.add(new JLabel("Start"));
+        range.add(startField);
+        range.add(new JLabel("Stop"));
+        range.add(stopField);
+        range.add(new JLabel("Step"));
+        range.add(stepField);
+        range.add(generateButton);
+        range.add(saveButton);
+
+        JPanel targets = new JPanel(new BorderLayout());
+        targets.add(new JLabel("To"), BorderLayout.NORTH);
+        targets.add(new JScrollPane(toList), BorderLayout.CENTER);
+
+        setLayout(new BorderLayout());
+        add(range, BorderLayout.NORTH);
+        add(targets, BorderLayout.WEST);
+        add(new JScrollPane(new JTable(model)), BorderLayout.CENTER);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setSize(800, 500);
+        setLocationRelativeTo(owner);
+    }
+
+    private void generate() {
+        int[] toIndexes = toList.getSelectedIndices();
+        try {
+            if (toIndexes.length == 0)
+                throw new IllegalArgumentException("Select at least one unit to convert to");
+            model.setSweep(new RangeSweep(category, fromBox.getSelectedIndex(), toIndexes,
+                    Double.parseDouble(startField.getText().trim()), Double.parseDouble(stopField.getText().trim()),
+                    Double.parseDouble(stepField.getText().trim())));
+            saveButton.setEnabled(true);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Range table", JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
+    /**
+     * Writes the table on a background thread, since large tables take a while.
+     */
+    private void save() {
+        RangeSweep sweep = model.getSweep();
+        JFileChooser chooser = new JFileChooser();
+        if (sweep == null || chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+        File file = chooser.getSelectedFile();
+        saveButton.setEnabled(false);
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                    sweep.writeCsv(writer, Runtime.getRuntime().availableProcessors());
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                saveButton.setEnabled(true);
+                try {
+                    get();
+                } catch (Exception e) {
+                    System.err.println("Unable to save " + file + ": " + e.getMessage());
+                    JOptionPane.showMessageDialog(SweepDialog.this, "Unable to save " + file.getName(),
+                            "Range table", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+}
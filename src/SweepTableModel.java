@@ -0,0 +1,45 @@
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table view of a {@link RangeSweep}. Rows are converted and formatted when the table asks for them, which
+ * JTable does for visible rows only, so even a sweep of millions of rows costs nothing to show.
+ */
+public class SweepTableModel extends AbstractTableModel {
+    private final StringBuilder text = new StringBuilder();
+    private RangeSweep sweep;
+
+    /**
+     * Replaces the table shown.
+     *
+     * @param sweep The new table, or null to show nothing.
+     */
+    public void setSweep(RangeSweep sweep) {
+        this.sweep = sweep;
+        fireTableStructureChanged();
+    }
+
+    public RangeSweep getSweep() {
+        return sweep;
+    }
+
+    @Override
+    public int getRowCount() {
+        return sweep == null ? 0 : (int) Math.min(sweep.getRowCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return sweep == null ? 0 : sweep.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return sweep.getColumnName(column);
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        text.setLength(0);
+        return NumberFormatter.appendShortest(sweep.getValue(rowIndex, columnIndex), text).toString();
+    }
+}
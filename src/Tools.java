@@ -1,6 +1,4 @@
 import javax.imageio.ImageIO;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.Clip;
 import javax.sound.sampled.FloatControl;
 import javax.swing.*;
@@ -14,13 +12,15 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.DecimalFormat;
-import java.util.LinkedList;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Random;
-import java.util.Scanner;
+import java.util.stream.Stream;
 
 public class Tools {
     /**
@@ -58,24 +58,25 @@ public class Tools {
     }
 
     /**
-     * Gets a line from the console.
+     * Gets a line from the console. One reader is shared by every call, so input read ahead of the current line
+     * (as happens when input is piped in) is kept for the next call instead of being lost.
      *
-     * @return The line typed in the console.
+     * @return The line typed in the console, or null at the end of input.
      */
     public static String readLine() {
         String input = "";
-        InputStreamReader isr = new InputStreamReader(System.in);
-        BufferedReader br = new BufferedReader(isr);
         try {
-
-            input = br.readLine();
-
+            input = ConsoleHolder.READER.readLine();
         } catch (IOException ioe) {
             System.out.println("IO Error reading from command line.");
         }
         return input;
     }
 
+    private static final class ConsoleHolder {
+        private static final BufferedReader READER = new BufferedReader(new InputStreamReader(System.in));
+    }
+
     /**
      * Sets the Swing look and feel to the Windows theme.
      */
@@ -107,7 +108,8 @@ public class Tools {
      * @throws IOException Thrown if the image could not be loaded.
      */
     public static BufferedImage loadBufferedImage(String path) throws IOException {
-        return ImageIO.read(new File("src/resources/" + path));
+        File file = new File("src/resources/" + path);
+        return AssetCache.getImage(file.getPath(), () -> ImageIO.read(file));
     }
 
     /**
@@ -130,11 +132,12 @@ public class Tools {
      * Reads a BufferedImage from a resrouce.
      *
      * @param filepath THe path to the file (starting at "/resources/")
-     * @return The BufferedImage stored at the path.
+     * @return The BufferedImage stored at the path, shared with other callers.
      */
     public static BufferedImage readImageFromFile(String filepath) {
+        String resource = "/resources/" + filepath;
         try {
-            return ImageIO.read(Tools.class.getResourceAsStream("/resources/" + filepath));
+            return AssetCache.getImage(resource, () -> ImageIO.read(Tools.class.getResource(resource)));
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -177,15 +180,12 @@ public class Tools {
      * @return The font.
      */
     public static Font getCustomFont(int style, int size) {
-        Font font;
-        InputStream is = Tools.class.getResourceAsStream("resources/font.ttf");
         try {
-            font = Font.createFont(Font.TRUETYPE_FONT, is);
-        } catch (Exception e) {
+            return AssetCache.getFont("/resources/font.ttf", style, size);
+        } catch (IOException e) {
             System.out.println("Could not load font at: src/resources/font.ttf");
             return null;
         }
-        return font.deriveFont(style, size);
     }
 
     /**
@@ -273,19 +273,7 @@ public class Tools {
      * @return A String representing the scientific notation of the provided double.
      */
     public static String doubleToScientificNotation(double value, int decimalPlaces) {
-        StringBuilder result = new StringBuilder();
-        String pattern = "0.";
-        for (int i = 0; i < decimalPlaces; i++) {
-            pattern += "0";
-        }
-        DecimalFormat decimalFormat = new DecimalFormat(pattern);
-
-        int exponent = (int) Math.floor(Math.log10(Math.abs(value)));
-        double mantissa = value / Math.pow(10, exponent);
-
-        result.append(decimalFormat.format(mantissa)).append(" * 10^").append(exponent);
-
-        return result.toString();
+        return NumberFormatter.appendScientific(value, decimalPlaces, new StringBuilder()).toString();
     }
 
     /**
@@ -296,12 +284,7 @@ public class Tools {
      * @return The rounded double.
      */
     public static String round(double value, int decimalPlaces) {
-        String pattern = "0.";
-        for (int i = 0; i < decimalPlaces; i++) {
-            pattern += "0";
-        }
-        DecimalFormat decimalFormat = new DecimalFormat(pattern);
-        return decimalFormat.format(value);
+        return NumberFormatter.appendFixed(value, decimalPlaces, new StringBuilder()).toString();
     }
 
     /**
@@ -348,16 +331,25 @@ public class Tools {
     public static void playSound(String filename, float gain, boolean muted) {
         if (muted)
             return;
+        String resource = "/resources/" + filename + ".wav";
+        Clip clip = null;
+        boolean started = false;
         try {
-            URL url = Tools.class.getResource("/resources/" + filename + ".wav");
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(url);
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioInputStream);
-            FloatControl gainControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-            gainControl.setValue(gain);
+            clip = AssetCache.getClip(resource);
+            if (clip == null)
+                return;
+            if (clip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
+                FloatControl control = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
+                control.setValue(Math.max(control.getMinimum(), Math.min(gain, control.getMaximum())));
+            }
             clip.start();
+            started = true;
         } catch (Exception e) {
-            System.out.println("Unable to play sound at:" + "/resources/" + filename + ".wav");
+            System.out.println("Unable to play sound at:" + resource);
+        } finally {
+            // Only a started clip returns to the pool when it stops
+            if (clip != null && !started)
+                AssetCache.releaseClip(resource, clip);
         }
     }
 
@@ -388,14 +380,28 @@ public class Tools {
      * @throws FileNotFoundException Throws if there is no file at the given filepath.
      */
     public static String[] readFromFile(String filepath) throws FileNotFoundException {
-        File file = new File(filepath);
-        Scanner myReader = new Scanner(file);
-        LinkedList<String> data = new LinkedList<>();
-        while (myReader.hasNextLine()) {
-            data.add(myReader.nextLine());
+        try (BufferedReader reader = new BufferedReader(new FileReader(filepath))) {
+            ArrayList<String> data = new ArrayList<>();
+            for (String line = reader.readLine(); line != null; line = reader.readLine())
+                data.add(line);
+            return data.toArray(new String[0]);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        myReader.close();
-        return data.toArray(new String[data.size()]);
+    }
+
+    /**
+     * Lazily reads the lines of a file, holding only one buffer of it in memory at a time.
+     * The stream must be closed to release the file, e.g. with try-with-resources.
+     *
+     * @param filepath The path to the desired file.
+     * @return A Stream of the lines within the file.
+     * @throws IOException Throws if the file could not be opened.
+     */
+    public static Stream<String> readLines(String filepath) throws IOException {
+        return Files.lines(Paths.get(filepath), Charset.defaultCharset());
     }
 
     /**
@@ -420,18 +426,61 @@ public class Tools {
      * @throws IOException Throws if it cannot write to the given filepath.
      */
     public static void saveToFile(String data, String filepath) throws IOException {
-        Files.write(Paths.get(filepath), data.getBytes());
+        try (Writer writer = newWriter(filepath)) {
+            writer.write(data);
+        }
     }
 
     /**
-     * Copies a file at given path to another path.
+     * Saves lines to a file as they are produced, ending each one with a line separator.
+     *
+     * @param lines    The lines to save, e.g. from {@link #readLines(String)}.
+     * @param filepath The path to the desired file.
+     * @throws IOException Throws if it cannot write to the given filepath.
+     */
+    public static void saveLinesToFile(Iterable<String> lines, String filepath) throws IOException {
+        try (BufferedWriter writer = newWriter(filepath)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Opens a file for writing text in the default charset. Characters the charset cannot encode are written as
+     * its replacement (usually '?') rather than failing, as String.getBytes() does.
+     */
+    private static BufferedWriter newWriter(String filepath) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(filepath)),
+                Charset.defaultCharset()));
+    }
+
+    /**
+     * Copies a file at given path to another path byte for byte, letting the OS move the data where it can.
+     * Copying a file onto itself does nothing. If the file shrinks during the copy, the copy ends where it does.
      *
      * @param loadFilepath The path of the file to copy.
      * @param saveFilepath The desired location of the copy.
      * @throws IOException Throws if either reading or writing failed.
      */
     public static void copyFile(String loadFilepath, String saveFilepath) throws IOException {
-        saveToFile(String.join("\n", readFromFile(loadFilepath)), saveFilepath);
+        Path load = Paths.get(loadFilepath);
+        Path save = Paths.get(saveFilepath);
+        // Opening the output truncates it, which would empty the input first
+        if (Files.exists(save) && Files.isSameFile(load, save))
+            return;
+        try (FileChannel in = FileChannel.open(load, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(save, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            for (long position = 0; position < size; ) {
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred == 0)
+                    break; // Nothing left past position, so the input got shorter
+                position += transferred;
+            }
+        }
     }
 
     /**
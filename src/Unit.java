@@ -0,0 +1,184 @@
+import java.util.function.Function;
+
+/**
+ * A unit as a packed {@link UnitDimension} and the number of SI units one of it is worth, e.g. a kilometre is
+ * length with a factor of 1000. Units multiply, divide and raise to powers into derived units such as km/h or
+ * N*m, and two units convert into each other exactly when their packed dimensions are equal.
+ * <p>
+ * Units defined by exact fractions also carry their factor as a {@link Rational}, which survives unit algebra,
+ * so km/h is exactly 1000/3600 m/s. Units with an offset (e.g. degrees Celsius) or an unknown dimension are not
+ * combinable: they can only be converted on their own, within their category. Instances are immutable.
+ */
+public final class Unit {
+    /**
+     * The dimensionless unit with a factor of one.
+     */
+    public static final Unit ONE = new Unit("1", UnitDimension.NONE, Rational.ONE, true);
+
+    private final String name;
+    private final long dimension;
+    private final double factor;
+    private final Rational exactFactor;
+    private final boolean combinable;
+
+    /**
+     * @param name       How the unit is written, e.g. "km" or "km/h".
+     * @param dimension  The packed dimension of the unit.
+     * @param factor     How many SI units one of this unit is worth.
+     * @param combinable False for units that can only be converted on their own.
+     */
+    public Unit(String name, long dimension, double factor, boolean combinable) {
+        this(name, dimension, factor, null, combinable);
+    }
+
+    /**
+     * @param name       How the unit is written, e.g. "km" or "km/h".
+     * @param dimension  The packed dimension of the unit.
+     * @param factor     Exactly how many SI units one of this unit is worth.
+     * @param combinable False for units that can only be converted on their own.
+     */
+    public Unit(String name, long dimension, Rational factor, boolean combinable) {
+        this(name, dimension, factor.doubleValue(), factor, combinable);
+    }
+
+    private Unit(String name, long dimension, double factor, Rational exactFactor, boolean combinable) {
+        this.name = name;
+        this.dimension = dimension;
+        this.factor = factor;
+        this.exactFactor = exactFactor;
+        this.combinable = combinable && dimension != UnitDimension.UNKNOWN;
+    }
+
+    /**
+     * Parses a unit expression such as "km/h", "m^2" or "kg*m/s^2". A single symbol is returned exactly as the
+     * lookup gives it, so non-combinable units can still be used on their own.
+     *
+     * @param expression The expression, with terms separated by "*", "/" or a middle dot.
+     * @param lookup     Finds the unit for a single symbol, throwing IllegalArgumentException if there is none.
+     * @return The unit.
+     * @throws IllegalArgumentException Thrown if a symbol is unknown or a non-combinable unit is combined.
+     */
+    public static Unit parse(String expression, Function<String, Unit> lookup) {
+        Unit unit = null;
+        int sign = 1;
+        int start = 0;
+        for (int i = 0; i <= expression.length(); i++) {
+            if (i < expression.length() && expression.charAt(i) != '*' && expression.charAt(i) != '/'
+                    && expression.charAt(i) != '\u00B7')
+                continue;
+            String term = expression.substring(start, i).trim();
+            int exponent = sign;
+            int caret = term.indexOf('^');
+            if (caret >= 0) {
+                try {
+                    exponent *= Integer.parseInt(term.substring(caret + 1).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Bad exponent in \"" + expression + "\"");
+                }
+                term = term.substring(0, caret).trim();
+            }
+            Unit termUnit = lookup.apply(term);
+            if (unit == null && exponent == 1 && i == expression.length())
+                return termUnit;
+            unit = (unit == null ? ONE : unit).multiply(termUnit.power(exponent));
+            if (i < expression.length())
+                sign = expression.charAt(i) == '/' ? -1 : 1;
+            start = i + 1;
+        }
+        return new Unit(expression, unit.dimension, unit.factor, unit.exactFactor, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return How many SI units one of this unit is worth.
+     */
+    public double getFactor() {
+        return factor;
+    }
+
+    /**
+     * @return Exactly how many SI units one of this unit is worth, or null if the unit was only defined by a
+     * double.
+     */
+    public Rational getExactFactor() {
+        return exactFactor;
+    }
+
+    /**
+     * @return False if the unit can only be converted on its own.
+     */
+    public boolean isCombinable() {
+        return combinable;
+    }
+
+    /**
+     * @param other Another unit.
+     * @return True if values can be converted between the units by a factor.
+     */
+    public boolean isCompatible(Unit other) {
+        return dimension == other.dimension && dimension != UnitDimension.UNKNOWN;
+    }
+
+    /**
+     * @param target The unit to convert to.
+     * @return The value to multiply a value in this unit by to get it in the target unit.
+     * @throws IllegalArgumentException Thrown if the units have different dimensions.
+     */
+    public double getFactorTo(Unit target) {
+        if (!isCompatible(target))
+            throw new IllegalArgumentException("Cannot convert " + name + " (" + UnitDimension.toString(dimension)
+                    + ") to " + target.name + " (" + UnitDimension.toString(target.dimension) + ")");
+        return factor / target.factor;
+    }
+
+    public Unit multiply(Unit other) {
+        checkCombinable(this);
+        checkCombinable(other);
+        return combined(name + "*" + other.name, UnitDimension.multiply(dimension, other.dimension),
+                factor * other.factor, exact(other) ? exactFactor.multiply(other.exactFactor) : null);
+    }
+
+    public Unit divide(Unit other) {
+        checkCombinable(this);
+        checkCombinable(other);
+        return combined(name + "/" + other.name, UnitDimension.divide(dimension, other.dimension),
+                factor / other.factor, exact(other) ? exactFactor.divide(other.exactFactor) : null);
+    }
+
+    public Unit power(int exponent) {
+        if (exponent == 1)
+            return this;
+        checkCombinable(this);
+        return combined(name + "^" + exponent, UnitDimension.power(dimension, exponent), Math.pow(factor, exponent),
+                exactFactor != null ? exactFactor.pow(exponent) : null);
+    }
+
+    private boolean exact(Unit other) {
+        return exactFactor != null && other.exactFactor != null;
+    }
+
+    /**
+     * Creates a derived unit, taking its double factor from the exact one when there is one so that rounding
+     * does not build up over several operations.
+     */
+    private static Unit combined(String name, long dimension, double factor, Rational exactFactor) {
+        return new Unit(name, dimension, exactFactor != null ? exactFactor.doubleValue() : factor, exactFactor, true);
+    }
+
+    private static void checkCombinable(Unit unit) {
+        if (!unit.combinable)
+            throw new IllegalArgumentException("\"" + unit.name + "\" cannot be combined with other units");
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
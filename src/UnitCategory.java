@@ -0,0 +1,248 @@
+/**
+ * A named group of units that can be converted between each other, e.g. "Length".
+ * Categories loaded from definitions keep their ratios as exact {@link Rational}s alongside the doubles the
+ * {@link ConversionEngine} uses, for {@link #getExactConversion(int, int)}. Instances are immutable.
+ */
+public final class UnitCategory {
+    private final String name;
+    private final String[] units;
+    private final double[] ratioToUnitZero;
+    private final double[] offsetToUnitZero;
+    private final String[][] aliases;
+    private final long dimension;
+    private final double siFactor;
+    private final Rational[] exactRatios;
+    private final Rational[] exactOffsets;
+    private final Rational exactSiFactor;
+    private final boolean hasOffsets;
+    private final Unit[] unitValues;
+    private final ConversionEngine engine;
+
+    /**
+     * Creates a category and compiles its conversion engine.
+     *
+     * @param name             The display name of the category.
+     * @param units            The display names of the units.
+     * @param ratioToUnitZero  How many of each unit make up one of the first unit.
+     * @param offsetToUnitZero The value of each unit when the first unit is zero.
+     */
+    public UnitCategory(String name, String[] units, double[] ratioToUnitZero, double[] offsetToUnitZero) {
+        this(name, units, new String[units.length][0], ratioToUnitZero, offsetToUnitZero);
+    }
+
+    /**
+     * Creates a category whose units also have short aliases (e.g. "km"), and compiles its conversion engine.
+     *
+     * @param name             The display name of the category.
+     * @param units            The display names of the units.
+     * @param aliases          The aliases of each unit.
+     * @param ratioToUnitZero  How many of each unit make up one of the first unit.
+     * @param offsetToUnitZero The value of each unit when the first unit is zero.
+     */
+    public UnitCategory(String name, String[] units, String[][] aliases, double[] ratioToUnitZero,
+                        double[] offsetToUnitZero) {
+        this(name, units, aliases, ratioToUnitZero, offsetToUnitZero, UnitDimension.UNKNOWN, Double.NaN);
+    }
+
+    /**
+     * Creates a category with a known SI dimension, so its units can be combined with units of other categories.
+     *
+     * @param name             The display name of the category.
+     * @param units            The display names of the units.
+     * @param aliases          The aliases of each unit.
+     * @param ratioToUnitZero  How many of each unit make up one of the first unit.
+     * @param offsetToUnitZero The value of each unit when the first unit is zero.
+     * @param dimension        The packed {@link UnitDimension} of every unit in the category.
+     * @param siFactor         How many SI units one of the first unit is worth.
+     */
+    public UnitCategory(String name, String[] units, String[][] aliases, double[] ratioToUnitZero,
+                        double[] offsetToUnitZero, long dimension, double siFactor) {
+        this(name, units, aliases, ratioToUnitZero, offsetToUnitZero, dimension, siFactor, null, null, null);
+    }
+
+    /**
+     * Creates a category from exact ratios. The engine uses the nearest double to each pair's exact factor, and
+     * {@link #getExactConversion(int, int)} the exact values.
+     *
+     * @param name             The display name of the category.
+     * @param units            The display names of the units.
+     * @param aliases          The aliases of each unit.
+     * @param ratioToUnitZero  How many of each unit make up one of the first unit.
+     * @param offsetToUnitZero The value of each unit when the first unit is zero.
+     * @param dimension        The packed {@link UnitDimension} of every unit in the category.
+     * @param siFactor         How many SI units one of the first unit is worth, or null if the dimension is unknown.
+     */
+    public UnitCategory(String name, String[] units, String[][] aliases, Rational[] ratioToUnitZero,
+                        Rational[] offsetToUnitZero, long dimension, Rational siFactor) {
+        this(name, units, aliases, doubles(ratioToUnitZero), doubles(offsetToUnitZero), dimension,
+                siFactor != null ? siFactor.doubleValue() : Double.NaN, ratioToUnitZero.clone(),
+                offsetToUnitZero.clone(), siFactor);
+    }
+
+    private UnitCategory(String name, String[] units, String[][] aliases, double[] ratioToUnitZero,
+                         double[] offsetToUnitZero, long dimension, double siFactor, Rational[] exactRatios,
+                         Rational[] exactOffsets, Rational exactSiFactor) {
+        if (units.length != ratioToUnitZero.length || units.length != aliases.length)
+            throw new IllegalArgumentException("Category " + name + " has " + units.length + " units but "
+                    + ratioToUnitZero.length + " ratios");
+        this.name = name;
+        this.units = units.clone();
+        this.ratioToUnitZero = ratioToUnitZero.clone();
+        this.offsetToUnitZero = offsetToUnitZero.clone();
+        this.aliases = new String[aliases.length][];
+        for (int i = 0; i < aliases.length; i++)
+            this.aliases[i] = aliases[i].clone();
+        this.dimension = dimension;
+        this.siFactor = siFactor;
+        this.exactRatios = exactRatios;
+        this.exactOffsets = exactOffsets;
+        this.exactSiFactor = exactSiFactor;
+        boolean offsets = false;
+        for (double offset : offsetToUnitZero)
+            offsets |= offset != 0;
+        this.hasOffsets = offsets;
+        this.unitValues = new Unit[units.length];
+        for (int i = 0; i < units.length; i++) {
+            unitValues[i] = exactSiFactor != null
+                    ? new Unit(units[i], dimension, exactSiFactor.divide(exactRatios[i]), !offsets)
+                    : new Unit(units[i], dimension, siFactor / ratioToUnitZero[i], !offsets);
+        }
+        this.engine = exactRatios != null ? new ConversionEngine(exactRatios, exactOffsets)
+                : new ConversionEngine(ratioToUnitZero, offsetToUnitZero);
+    }
+
+    private static double[] doubles(Rational[] values) {
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++)
+            doubles[i] = values[i].doubleValue();
+        return doubles;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return A copy of the unit names, in index order.
+     */
+    public String[] getUnits() {
+        return units.clone();
+    }
+
+    public int getUnitCount() {
+        return units.length;
+    }
+
+    public String getUnit(int index) {
+        return units[index];
+    }
+
+    /**
+     * @param index The index of the unit.
+     * @return A copy of the unit's aliases.
+     */
+    public String[] getAliases(int index) {
+        return aliases[index].clone();
+    }
+
+    /**
+     * Finds a unit by name, ignoring case.
+     *
+     * @param unit The name of the unit.
+     * @return The index of the unit, or -1 if it is not in this category.
+     */
+    public int indexOf(String unit) {
+        for (int i = 0; i < units.length; i++) {
+            if (units[i].equalsIgnoreCase(unit))
+                return i;
+        }
+        return -1;
+    }
+
+    public double getRatioToUnitZero(int index) {
+        return ratioToUnitZero[index];
+    }
+
+    public double getOffsetToUnitZero(int index) {
+        return offsetToUnitZero[index];
+    }
+
+    /**
+     * @param index The index of the unit.
+     * @return Exactly how many of the unit make up one of the first unit. Categories created from doubles give
+     * the exact value of the double.
+     */
+    public Rational getExactRatioToUnitZero(int index) {
+        return exactRatios != null ? exactRatios[index] : Rational.valueOf(ratioToUnitZero[index]);
+    }
+
+    /**
+     * @param index The index of the unit.
+     * @return Exactly the value of the unit when the first unit is zero.
+     */
+    public Rational getExactOffsetToUnitZero(int index) {
+        return exactOffsets != null ? exactOffsets[index] : Rational.valueOf(offsetToUnitZero[index]);
+    }
+
+    /**
+     * @return Exactly how many SI units one of the first unit is worth, or null if the dimension is unknown or
+     * the category was created from doubles.
+     */
+    public Rational getExactSiFactor() {
+        return exactSiFactor;
+    }
+
+    /**
+     * Creates a converter between two units that rounds to a requested number of decimal places exactly.
+     *
+     * @param fromIndex Index of the unit to convert from.
+     * @param toIndex   Index of the unit to convert to.
+     * @return The converter.
+     */
+    public ExactConversion getExactConversion(int fromIndex, int toIndex) {
+        // unit = ratio * unitZero + offset, so to = ratioTo / ratioFrom * (from - offsetFrom) + offsetTo
+        Rational factor = getExactRatioToUnitZero(toIndex).divide(getExactRatioToUnitZero(fromIndex));
+        Rational offset = getExactOffsetToUnitZero(toIndex)
+                .subtract(getExactOffsetToUnitZero(fromIndex).multiply(factor));
+        return new ExactConversion(factor, offset);
+    }
+
+    /**
+     * @return The packed {@link UnitDimension} of the units, or {@link UnitDimension#UNKNOWN} if it was not defined.
+     */
+    public long getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return How many SI units one of the first unit is worth, or NaN if the dimension is unknown.
+     */
+    public double getSiFactor() {
+        return siFactor;
+    }
+
+    /**
+     * @return True if any unit has a different zero point to the first unit, e.g. temperature.
+     */
+    public boolean hasOffsets() {
+        return hasOffsets;
+    }
+
+    /**
+     * @param index The index of the unit.
+     * @return The unit for use in unit algebra. Units of categories with offsets or an unknown dimension are not
+     * combinable.
+     */
+    public Unit toUnit(int index) {
+        return unitValues[index];
+    }
+
+    public ConversionEngine getEngine() {
+        return engine;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
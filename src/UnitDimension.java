@@ -0,0 +1,155 @@
+/**
+ * SI dimensions packed into a single long, so comparing two dimensions or using one as a map key costs no
+ * more than comparing two numbers.
+ * <p>
+ * Each of the seven SI base dimensions has an 8-bit lane holding its signed exponent, e.g. a speed
+ * (m/s) has 1 in the length lane and -1 in the time lane. Multiplying quantities adds their exponents lane by
+ * lane. The top lane is never used by a real dimension, which leaves room for {@link #UNKNOWN}.
+ */
+public final class UnitDimension {
+    public static final int LENGTH = 0;
+    public static final int MASS = 1;
+    public static final int TIME = 2;
+    public static final int CURRENT = 3;
+    public static final int TEMPERATURE = 4;
+    public static final int AMOUNT = 5;
+    public static final int LUMINOSITY = 6;
+
+    /**
+     * The dimension of a pure number.
+     */
+    public static final long NONE = 0;
+
+    /**
+     * Marks units whose dimension was not given in their definitions. It is never equal to a real dimension.
+     */
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    private static final int LANES = 7;
+    private static final String[] SYMBOLS = {"m", "kg", "s", "A", "K", "mol", "cd"};
+
+    private UnitDimension() {
+    }
+
+    /**
+     * @param baseDimension One of the base dimension constants, e.g. {@link #LENGTH}.
+     * @return The dimension with an exponent of one in that base dimension.
+     */
+    public static long of(int baseDimension) {
+        return 1L << (baseDimension * Byte.SIZE);
+    }
+
+    /**
+     * @param dimension     A packed dimension.
+     * @param baseDimension One of the base dimension constants.
+     * @return The exponent of the base dimension.
+     */
+    public static int exponent(long dimension, int baseDimension) {
+        return (byte) (dimension >>> (baseDimension * Byte.SIZE));
+    }
+
+    /**
+     * @return The dimension of the product of quantities with the given dimensions.
+     * @throws IllegalArgumentException Thrown if either dimension is unknown or an exponent overflows.
+     */
+    public static long multiply(long a, long b) {
+        return combine(a, b, 1);
+    }
+
+    /**
+     * @return The dimension of the quotient of quantities with the given dimensions.
+     * @throws IllegalArgumentException Thrown if either dimension is unknown or an exponent overflows.
+     */
+    public static long divide(long a, long b) {
+        return combine(a, b, -1);
+    }
+
+    /**
+     * @param dimension A packed dimension.
+     * @param exponent  The power to raise it to.
+     * @return The dimension of a quantity raised to a power.
+     * @throws IllegalArgumentException Thrown if the dimension is unknown or an exponent overflows.
+     */
+    public static long power(long dimension, int exponent) {
+        return combine(NONE, dimension, exponent);
+    }
+
+    private static long combine(long a, long b, int bExponent) {
+        if (a == UNKNOWN || b == UNKNOWN)
+            throw new IllegalArgumentException("Units of unknown dimension cannot be combined");
+        long result = 0;
+        for (int lane = 0; lane < LANES; lane++) {
+            int exponent = exponent(a, lane) + exponent(b, lane) * bExponent;
+            if (exponent < Byte.MIN_VALUE || exponent > Byte.MAX_VALUE)
+                throw new IllegalArgumentException("Exponent out of range in " + SYMBOLS[lane]);
+            result |= (exponent & 0xFFL) << (lane * Byte.SIZE);
+        }
+        return result;
+    }
+
+    /**
+     * Parses a dimension written with SI base unit symbols, e.g. "m", "m^3" or "kg*m/s^2". "1" is dimensionless.
+     *
+     * @param text The dimension.
+     * @return The packed dimension.
+     * @throws IllegalArgumentException Thrown if the text uses anything but base unit symbols.
+     */
+    public static long parse(String text) {
+        long dimension = NONE;
+        int sign = 1;
+        int start = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i < text.length() && text.charAt(i) != '*' && text.charAt(i) != '/' && text.charAt(i) != '\u00B7')
+                continue;
+            String term = text.substring(start, i).trim();
+            int exponent = sign;
+            int caret = term.indexOf('^');
+            if (caret >= 0) {
+                try {
+                    exponent *= Integer.parseInt(term.substring(caret + 1).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Bad exponent in \"" + text + "\"");
+                }
+                term = term.substring(0, caret).trim();
+            }
+            if (!term.equals("1"))
+                dimension = combine(dimension, of(indexOfSymbol(term, text)), exponent);
+            if (i < text.length())
+                sign = text.charAt(i) == '/' ? -1 : 1;
+            start = i + 1;
+        }
+        return dimension;
+    }
+
+    private static int indexOfSymbol(String symbol, String text) {
+        for (int lane = 0; lane < LANES; lane++) {
+            if (SYMBOLS[lane].equals(symbol))
+                return lane;
+        }
+        throw new IllegalArgumentException("Unknown base unit \"" + symbol + "\" in \"" + text + "\"");
+    }
+
+    /**
+     * @param dimension A packed dimension.
+     * @return The dimension in SI base unit symbols separated by middle dots, "1" for dimensionless or "?" if
+     * unknown.
+     */
+    public static String toString(long dimension) {
+        if (dimension == UNKNOWN)
+            return "?";
+        if (dimension == NONE)
+            return "1";
+        StringBuilder text = new StringBuilder();
+        for (int lane = 0; lane < LANES; lane++) {
+            int exponent = exponent(dimension, lane);
+            if (exponent == 0)
+                continue;
+            if (text.length() > 0)
+                text.append('\u00B7');
+            text.append(SYMBOLS[lane]);
+            if (exponent != 1)
+                text.append('^').append(exponent);
+        }
+        return text.toString();
+    }
+}
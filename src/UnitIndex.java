@@ -0,0 +1,236 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Search index over the names and aliases of a category's units, for type-ahead filtering of long unit lists.
+ * <p>
+ * Every name, alias and word of a multi-word name is a search term. Terms are held in a prefix trie whose nodes
+ * each cover a contiguous range of the sorted terms, so a prefix lookup is a walk down the trie followed by a
+ * scan of only the matching terms. Misspellings are caught by a trigram index: a unit matches if its terms share
+ * at least half of the query's trigrams. Instances are immutable and safe to share between threads.
+ */
+public final class UnitIndex {
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final long SPREAD = 0x9E3779B97F4A7C15L;
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[\\s\\-]+");
+
+    private final int unitCount;
+    private final int[] termUnits;
+    private final Node root;
+    private final Map<Long, int[]> trigrams;
+
+    /**
+     * Indexes every unit of a category.
+     *
+     * @param category The category to index.
+     */
+    public UnitIndex(UnitCategory category) {
+        unitCount = category.getUnitCount();
+        List<Term> terms = new ArrayList<>();
+        Map<Long, List<Integer>> postings = new HashMap<>();
+        for (int unit = 0; unit < unitCount; unit++) {
+            List<String> unitTerms = new ArrayList<>();
+            addTerms(category.getUnit(unit), unitTerms);
+            for (String alias : category.getAliases(unit))
+                addTerms(alias, unitTerms);
+            for (String term : unitTerms) {
+                terms.add(new Term(term, unit));
+                for (long trigram : trigrams(term)) {
+                    List<Integer> units = postings.computeIfAbsent(trigram, key -> new ArrayList<>());
+                    if (units.isEmpty() || units.get(units.size() - 1) != unit)
+                        units.add(unit);
+                }
+            }
+        }
+        terms.sort((a, b) -> a.text.compareTo(b.text));
+        String[] sorted = new String[terms.size()];
+        termUnits = new int[terms.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = terms.get(i).text;
+            termUnits[i] = terms.get(i).unit;
+        }
+        root = new Node(sorted, 0, sorted.length, 0);
+        trigrams = new HashMap<>(postings.size() * 2);
+        postings.forEach((trigram, units) -> trigrams.put(trigram,
+                units.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * @return The number of units indexed.
+     */
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    /**
+     * Finds the units matching a query. Units with a term starting with the query come first in category order,
+     * followed by fuzzy matches from the best match down. A blank query matches every unit.
+     *
+     * @param query The text typed by the user.
+     * @return The indexes of the matching units within the category.
+     */
+    public int[] search(String query) {
+        String text = query.trim().toLowerCase(Locale.ROOT);
+        if (text.isEmpty()) {
+            int[] all = new int[unitCount];
+            for (int i = 0; i < unitCount; i++)
+                all[i] = i;
+            return all;
+        }
+
+        boolean[] matched = new boolean[unitCount];
+        int prefixMatches = 0;
+        Node node = root.find(text);
+        if (node != null) {
+            for (int term = node.first; term < node.end; term++) {
+                if (!matched[termUnits[term]]) {
+                    matched[termUnits[term]] = true;
+                    prefixMatches++;
+                }
+            }
+        }
+        int[] result = new int[unitCount];
+        int count = 0;
+        for (int unit = 0; unit < unitCount && count < prefixMatches; unit++) {
+            if (matched[unit])
+                result[count++] = unit;
+        }
+
+        if (text.length() >= MIN_FUZZY_LENGTH)
+            count = appendFuzzyMatches(text, matched, result, count);
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Scores each unit by how many of the query's trigrams its terms contain and appends those scoring at least
+     * half, best first.
+     */
+    private int appendFuzzyMatches(String text, boolean[] matched, int[] result, int count) {
+        long[] queryTrigrams = trigrams(text);
+        int[] scores = new int[unitCount];
+        int candidates = 0;
+        for (long trigram : queryTrigrams) {
+            int[] units = trigrams.get(trigram);
+            if (units == null)
+                continue;
+            for (int unit : units) {
+                if (!matched[unit] && scores[unit]++ == 0)
+                    candidates++;
+            }
+        }
+        if (candidates == 0)
+            return count;
+
+        int minimum = (queryTrigrams.length + 1) / 2;
+        int start = count;
+        for (int unit = 0; unit < unitCount; unit++) {
+            if (scores[unit] >= minimum)
+                result[count++] = unit;
+        }
+        // Insertion sort by score keeps equal scores in category order, and fuzzy matches are few
+        for (int i = start + 1; i < count; i++) {
+            int unit = result[i];
+            int j = i - 1;
+            while (j >= start && scores[result[j]] < scores[unit]) {
+                result[j + 1] = result[j];
+                j--;
+            }
+            result[j + 1] = unit;
+        }
+        return count;
+    }
+
+    private static void addTerms(String name, List<String> terms) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        addTerm(lower, terms);
+        for (String word : WORD_SEPARATOR.split(lower))
+            addTerm(word, terms);
+    }
+
+    private static void addTerm(String term, List<String> terms) {
+        if (!term.isEmpty() && !terms.contains(term))
+            terms.add(term);
+    }
+
+    /**
+     * Gets the distinct trigrams of a term padded with a space on either side, each packed into a long.
+     * The packed chars are multiplied by an odd constant, which keeps them distinct but spreads their hash codes.
+     */
+    private static long[] trigrams(String term) {
+        String padded = " " + term + " ";
+        long[] grams = new long[padded.length() - 2];
+        int count = 0;
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            long gram = ((long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2))
+                    * SPREAD;
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++)
+                seen = grams[j] == gram;
+            if (!seen)
+                grams[count++] = gram;
+        }
+        return Arrays.copyOf(grams, count);
+    }
+
+    private static final class Term {
+        private final String text;
+        private final int unit;
+
+        private Term(String text, int unit) {
+            this.text = text;
+            this.unit = unit;
+        }
+    }
+
+    /**
+     * A trie node. Its terms, those starting with the node's prefix, are the sorted terms in [first, end).
+     */
+    private static final class Node {
+        private final int first;
+        private final int end;
+        private final char[] keys;
+        private final Node[] children;
+
+        private Node(String[] terms, int first, int end, int depth) {
+            this.first = first;
+            this.end = end;
+            int start = first;
+            while (start < end && terms[start].length() == depth)
+                start++;
+            int childCount = 0;
+            for (int i = start; i < end; i++) {
+                if (i == start || terms[i].charAt(depth) != terms[i - 1].charAt(depth))
+                    childCount++;
+            }
+            keys = new char[childCount];
+            children = new Node[childCount];
+            int child = 0;
+            for (int i = start; i < end; ) {
+                char key = terms[i].charAt(depth);
+                int j = i + 1;
+                while (j < end && terms[j].charAt(depth) == key)
+                    j++;
+                keys[child] = key;
+                children[child++] = new Node(terms, i, j, depth + 1);
+                i = j;
+            }
+        }
+
+        /**
+         * @return The node for a prefix, or null if no term starts with it.
+         */
+        private Node find(String prefix) {
+            Node node = this;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                int child = Arrays.binarySearch(node.keys, prefix.charAt(i));
+                node = child < 0 ? null : node.children[child];
+            }
+            return node;
+        }
+    }
+}
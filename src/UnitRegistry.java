@@ -0,0 +1,599 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * The unit categories known to the application, loaded from a text definition file
+ * (see "src/resources/units.txt" for the format).
+ * <p>
+ * The first load of a definition file compiles it into a binary snapshot in "~/.unitconverter". Later loads
+ * memory-map the snapshot and only read its category directory; the units of a category are materialized the
+ * first time that category is used. Instances are immutable apart from that lazy materialization and are safe
+ * to share between threads.
+ * <p>
+ * The application's registry is published through {@link #getDefault()}. Reloading definitions builds a whole
+ * new registry and swaps it in atomically with {@link #setDefault(UnitRegistry)} (see
+ * {@link UnitRegistryWatcher}), so readers never lock and code that captured a registry keeps a consistent view.
+ */
+public final class UnitRegistry {
+    /**
+     * System property naming an external definition file to use instead of the built-in one.
+     */
+    public static final String DEFINITIONS_PROPERTY = "unitconverter.units";
+
+    private static final String BUILT_IN_DEFINITIONS = "/resources/units.txt";
+    private static final Path SNAPSHOT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".unitconverter");
+    private static final int SNAPSHOT_MAGIC = 0x55435334;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final AtomicReference<UnitRegistry> CURRENT = new AtomicReference<>();
+    private static final List<Consumer<UnitRegistry>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private final long version = VERSIONS.incrementAndGet();
+
+    private final String[] names;
+    private final long[] dimensions;
+    private final double[] siFactors;
+    private final Map<Long, Integer> categoryByDimension = new HashMap<>();
+    private final int[] blockPositions;
+    private final ByteBuffer snapshot;
+    private final AtomicReferenceArray<UnitCategory> categories;
+    private volatile Map<String, Long> symbols;
+
+    private UnitRegistry(List<UnitCategory> categories) {
+        this.names = new String[categories.size()];
+        this.dimensions = new long[names.length];
+        this.siFactors = new double[names.length];
+        this.blockPositions = null;
+        this.snapshot = null;
+        this.categories = new AtomicReferenceArray<>(categories.size());
+        for (int i = 0; i < names.length; i++) {
+            names[i] = categories.get(i).getName();
+            dimensions[i] = categories.get(i).getDimension();
+            siFactors[i] = categories.get(i).getSiFactor();
+            this.categories.set(i, categories.get(i));
+        }
+        indexDimensions();
+    }
+
+    private UnitRegistry(ByteBuffer snapshot) {
+        this.snapshot = snapshot;
+        ByteBuffer buffer = snapshot.duplicate();
+        buffer.position(Integer.BYTES + Long.BYTES);
+        int count = buffer.getInt();
+        names = new String[count];
+        dimensions = new long[count];
+        siFactors = new double[count];
+        blockPositions = new int[count];
+        for (int i = 0; i < count; i++) {
+            blockPositions[i] = buffer.getInt();
+            dimensions[i] = buffer.getLong();
+            siFactors[i] = buffer.getDouble();
+            names[i] = readString(buffer);
+        }
+        categories = new AtomicReferenceArray<>(count);
+        indexDimensions();
+    }
+
+    private void indexDimensions() {
+        for (int i = 0; i < names.length; i++) {
+            if (dimensions[i] != UnitDimension.UNKNOWN)
+                categoryByDimension.putIfAbsent(dimensions[i], i);
+        }
+    }
+
+    /**
+     * Gets the registry used by the application, loading it on first use.
+     *
+     * @return The default registry.
+     */
+    public static UnitRegistry getDefault() {
+        UnitRegistry registry = CURRENT.get();
+        return registry != null ? registry : DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Replaces the registry returned by {@link #getDefault()} and tells every default listener. Readers that
+     * already hold the old registry keep using it unchanged, so no reader ever sees a mix of old and new units.
+     *
+     * @param registry The new registry.
+     */
+    public static void setDefault(UnitRegistry registry) {
+        CURRENT.set(registry);
+        for (Consumer<UnitRegistry> listener : LISTENERS)
+            listener.accept(registry);
+    }
+
+    /**
+     * Registers a listener for {@link #setDefault(UnitRegistry)}. It is called on the thread that replaced the
+     * registry.
+     *
+     * @param listener Receives the new registry.
+     */
+    public static void addDefaultListener(Consumer<UnitRegistry> listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeDefaultListener(Consumer<UnitRegistry> listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Loads the file named by {@link #DEFINITIONS_PROPERTY}, or the built-in definitions if it is not set.
+     *
+     * @return The loaded registry.
+     * @throws IOException Thrown if the definitions could not be read.
+     */
+    public static UnitRegistry loadDefault() throws IOException {
+        String external = System.getProperty(DEFINITIONS_PROPERTY);
+        if (external != null)
+            return load(Paths.get(external));
+        try (InputStream is = UnitRegistry.class.getResourceAsStream(BUILT_IN_DEFINITIONS)) {
+            if (is == null)
+                throw new IOException("Missing built-in unit definitions at " + BUILT_IN_DEFINITIONS);
+            return load(is.readAllBytes(), SNAPSHOT_DIRECTORY.resolve("built-in.snapshot"));
+        }
+    }
+
+    /**
+     * Loads a definition file, reusing its snapshot when the file has not changed since the snapshot was made.
+     *
+     * @param definitions The path to the definition file.
+     * @return The loaded registry.
+     * @throws IOException Thrown if the file could not be read.
+     */
+    public static UnitRegistry load(Path definitions) throws IOException {
+        String key = Integer.toHexString(definitions.toAbsolutePath().normalize().toString().hashCode());
+        return load(Files.readAllBytes(definitions), SNAPSHOT_DIRECTORY.resolve("units-" + key + ".snapshot"));
+    }
+
+    /**
+     * Parses definitions without touching any snapshot.
+     *
+     * @param definitions The text of a definition file.
+     * @return The registry, with every category already materialized.
+     */
+    public static UnitRegistry parse(String definitions) {
+        return new UnitRegistry(parseCategories(definitions));
+    }
+
+    private static UnitRegistry load(byte[] definitions, Path snapshotPath) {
+        CRC32 crc = new CRC32();
+        crc.update(definitions);
+        long checksum = crc.getValue();
+
+        ByteBuffer snapshot = mapSnapshot(snapshotPath, checksum);
+        if (snapshot != null)
+            return new UnitRegistry(snapshot);
+
+        List<UnitCategory> categories = parseCategories(new String(definitions, StandardCharsets.UTF_8));
+        writeSnapshot(categories, checksum, snapshotPath);
+        return new UnitRegistry(categories);
+    }
+
+    /**
+     * @return A number that is higher for registries loaded later, so stale updates can be told apart.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getCategoryCount() {
+        return names.length;
+    }
+
+    /**
+     * @return The category names in definition order.
+     */
+    public List<String> getCategoryNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * Finds a category by name, ignoring case.
+     *
+     * @param name The name of the category.
+     * @return The index of the category, or -1 if there is none with that name.
+     */
+    public int indexOfCategory(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equalsIgnoreCase(name))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets a category by name, ignoring case.
+     *
+     * @param name The name of the category.
+     * @return The category.
+     * @throws IllegalArgumentException Thrown if there is no category with that name.
+     */
+    public UnitCategory getCategory(String name) {
+        int index = indexOfCategory(name);
+        if (index < 0)
+            throw new IllegalArgumentException("Unknown unit category: " + name);
+        return getCategory(index);
+    }
+
+    /**
+     * Gets a category, materializing it from the snapshot on first use.
+     *
+     * @param index The index of the category.
+     * @return The category.
+     */
+    public UnitCategory getCategory(int index) {
+        UnitCategory category = categories.get(index);
+        if (category == null) {
+            categories.compareAndSet(index, null, readCategory(index));
+            category = categories.get(index);
+        }
+        return category;
+    }
+
+    /**
+     * Finds a unit by name or alias in any category. An exact match wins, otherwise case is ignored.
+     * The first lookup materializes every category to build the symbol table.
+     *
+     * @param symbol The name or alias of the unit, e.g. "Kilometer" or "km".
+     * @return The unit packed as (category index << 32 | unit index), or -1 if there is no such unit.
+     */
+    public long findUnit(String symbol) {
+        Map<String, Long> symbols = this.symbols;
+        if (symbols == null)
+            this.symbols = symbols = buildSymbols();
+        Long unit = symbols.get(symbol);
+        if (unit == null)
+            unit = symbols.get(symbol.toLowerCase(Locale.ROOT));
+        return unit == null ? -1 : unit;
+    }
+
+    /**
+     * Finds the category holding units of a dimension with a single hash lookup.
+     *
+     * @param dimension A packed {@link UnitDimension}.
+     * @return The index of the first category with that dimension, or -1 if there is none.
+     */
+    public int indexOfDimension(long dimension) {
+        Integer index = categoryByDimension.get(dimension);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Gets the unit with a name or alias, for use in unit algebra.
+     *
+     * @param symbol The name or alias of the unit, e.g. "km".
+     * @return The unit.
+     * @throws IllegalArgumentException Thrown if there is no such unit.
+     */
+    public Unit getUnit(String symbol) {
+        long packed = findUnit(symbol);
+        if (packed < 0)
+            throw new IllegalArgumentException("Unknown unit \"" + symbol + "\"");
+        return getCategory(categoryOf(packed)).toUnit(unitOf(packed));
+    }
+
+    /**
+     * Resolves a unit expression such as "km/h" or "kg*m^2/s^2" into a derived unit. Each symbol costs one
+     * lookup in the symbol table.
+     *
+     * @param expression The expression.
+     * @return The unit.
+     * @throws IllegalArgumentException Thrown if a symbol is unknown or a unit that must stand alone is combined.
+     */
+    public Unit resolve(String expression) {
+        return Unit.parse(expression, this::getUnit);
+    }
+
+    /**
+     * @param unit A unit returned by {@link #findUnit(String)}.
+     * @return The index of the unit's category.
+     */
+    public static int categoryOf(long unit) {
+        return (int) (unit >>> 32);
+    }
+
+    /**
+     * @param unit A unit returned by {@link #findUnit(String)}.
+     * @return The index of the unit within its category.
+     */
+    public static int unitOf(long unit) {
+        return (int) unit;
+    }
+
+    private Map<String, Long> buildSymbols() {
+        Map<String, Long> exact = new HashMap<>();
+        Map<String, Long> lowerCase = new HashMap<>();
+        for (int category = 0; category < names.length; category++) {
+            UnitCategory unitCategory = getCategory(category);
+            for (int unit = 0; unit < unitCategory.getUnitCount(); unit++) {
+                Long packed = ((long) category << 32) | unit;
+                exact.putIfAbsent(unitCategory.getUnit(unit), packed);
+                lowerCase.putIfAbsent(unitCategory.getUnit(unit).toLowerCase(Locale.ROOT), packed);
+                for (String alias : unitCategory.getAliases(unit)) {
+                    exact.putIfAbsent(alias, packed);
+                    lowerCase.putIfAbsent(alias.toLowerCase(Locale.ROOT), packed);
+                }
+            }
+        }
+        lowerCase.keySet().removeAll(exact.keySet());
+        exact.putAll(lowerCase);
+        return exact;
+    }
+
+    private UnitCategory readCategory(int index) {
+        ByteBuffer buffer = snapshot.duplicate();
+        buffer.position(blockPositions[index]);
+        String siFactor = readString(buffer);
+        int count = buffer.getInt();
+        String[] units = new String[count];
+        String[][] aliases = new String[count][];
+        Rational[] ratios = new Rational[count];
+        Rational[] offsets = new Rational[count];
+        for (int i = 0; i < count; i++) {
+            ratios[i] = Rational.parse(readString(buffer));
+            offsets[i] = Rational.parse(readString(buffer));
+            units[i] = readString(buffer);
+            aliases[i] = new String[buffer.get() & 0xFF];
+            for (int alias = 0; alias < aliases[i].length; alias++)
+                aliases[i][alias] = readString(buffer);
+        }
+        return new UnitCategory(names[index], units, aliases, ratios, offsets, dimensions[index],
+                siFactor.isEmpty() ? null : Rational.parse(siFactor));
+    }
+
+    private static List<UnitCategory> parseCategories(String definitions) {
+        List<UnitCategory> categories = new ArrayList<>();
+        Map<String, Unit> defined = new HashMap<>();
+        String name = null;
+        long dimension = UnitDimension.UNKNOWN;
+        Rational siFactor = null;
+        List<String> units = new ArrayList<>();
+        List<String[]> aliases = new ArrayList<>();
+        List<Rational[]> values = new ArrayList<>();
+        String[] lines = definitions.split("\r?\n");
+        for (int lineNumber = 1; lineNumber <= lines.length; lineNumber++) {
+            String line = lines[lineNumber - 1].trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            try {
+                if (line.startsWith("[") && line.endsWith("]")) {
+                    if (name != null)
+                        categories.add(toCategory(name, units, aliases, values, dimension, siFactor, defined));
+                    String header = line.substring(1, line.length() - 1).trim();
+                    int equals = header.indexOf('=');
+                    name = equals < 0 ? header : header.substring(0, equals).trim();
+                    dimension = UnitDimension.UNKNOWN;
+                    siFactor = null;
+                    if (equals >= 0) {
+                        String[] parts = header.substring(equals + 1).trim().split("\\s+", 2);
+                        siFactor = Rational.parse(parts[0]);
+                        dimension = parts.length > 1 ? UnitDimension.parse(parts[1]) : UnitDimension.NONE;
+                    }
+                    units.clear();
+                    aliases.clear();
+                    values.clear();
+                    continue;
+                }
+                int equals = line.indexOf('=');
+                if (name == null || equals < 0)
+                    throw new IllegalArgumentException("expected \"[Category = factor dimension]\" or "
+                            + "\"Unit (aliases) = ratio [offset]\"");
+                String unit = line.substring(0, equals).trim();
+                String[] unitAliases = new String[0];
+                int open = unit.indexOf('(');
+                if (open >= 0 && unit.endsWith(")")) {
+                    unitAliases = unit.substring(open + 1, unit.length() - 1).trim().split("\\s*,\\s*");
+                    unit = unit.substring(0, open).trim();
+                }
+                String value = line.substring(equals + 1).trim();
+                units.add(unit);
+                aliases.add(unitAliases);
+                values.add(parseValue(value, dimension, siFactor, units, aliases, values, defined));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        if (name != null)
+            categories.add(toCategory(name, units, aliases, values, dimension, siFactor, defined));
+        return categories;
+    }
+
+    /**
+     * Parses the right hand side of a unit definition: either "ratio [offset]", where each number is a decimal or
+     * an exact fraction such as "1/3600", or a unit expression over units defined earlier in the file (e.g.
+     * "km/h"), whose ratio is worked out from the category's SI factor.
+     */
+    private static Rational[] parseValue(String value, long dimension, Rational siFactor, List<String> units,
+                                         List<String[]> aliases, List<Rational[]> values,
+                                         Map<String, Unit> defined) {
+        char first = value.isEmpty() ? ' ' : value.charAt(0);
+        if (Character.isDigit(first) || first == '.' || first == '-' || first == '+') {
+            String[] numbers = value.split("\\s+");
+            Rational ratio = Rational.parse(numbers[0]);
+            if (ratio.signum() == 0)
+                throw new IllegalArgumentException("a unit's ratio cannot be zero");
+            Rational offset = numbers.length > 1 ? Rational.parse(numbers[1]) : Rational.ZERO;
+            return new Rational[]{ratio, offset};
+        }
+        if (dimension == UnitDimension.UNKNOWN)
+            throw new IllegalArgumentException("units defined as \"" + value
+                    + "\" need a dimension in the category header");
+        Unit derived = Unit.parse(value, symbol -> {
+            Unit unit = findDefined(symbol, dimension, siFactor, units, aliases, values);
+            if (unit == null)
+                unit = defined.get(symbol);
+            if (unit == null)
+                unit = defined.get(symbol.toLowerCase(Locale.ROOT));
+            if (unit == null)
+                throw new IllegalArgumentException("unknown unit \"" + symbol + "\"");
+            return unit;
+        });
+        if (derived.getDimension() != dimension)
+            throw new IllegalArgumentException("\"" + value + "\" is " + UnitDimension.toString(derived.getDimension())
+                    + " but the category is " + UnitDimension.toString(dimension));
+        Rational factor = derived.getExactFactor() != null ? derived.getExactFactor()
+                : Rational.valueOf(derived.getFactor());
+        return new Rational[]{siFactor.divide(factor), Rational.ZERO};
+    }
+
+    /**
+     * Finds a unit defined earlier in the category being parsed, excluding the one being defined.
+     */
+    private static Unit findDefined(String symbol, long dimension, Rational siFactor, List<String> units,
+                                    List<String[]> aliases, List<Rational[]> values) {
+        for (int i = 0; i < values.size(); i++) {
+            boolean match = units.get(i).equalsIgnoreCase(symbol);
+            for (String alias : aliases.get(i))
+                match |= alias.equals(symbol);
+            if (match)
+                return new Unit(units.get(i), dimension, siFactor.divide(values.get(i)[0]),
+                        values.get(i)[1].signum() == 0);
+        }
+        return null;
+    }
+
+    private static UnitCategory toCategory(String name, List<String> units, List<String[]> aliases,
+                                           List<Rational[]> values, long dimension, Rational siFactor,
+                                           Map<String, Unit> defined) {
+        if (units.isEmpty())
+            throw new IllegalArgumentException("Category " + name + " has no units");
+        Rational[] ratios = new Rational[units.size()];
+        Rational[] offsets = new Rational[units.size()];
+        for (int i = 0; i < units.size(); i++) {
+            ratios[i] = values.get(i)[0];
+            offsets[i] = values.get(i)[1];
+        }
+        UnitCategory category = new UnitCategory(name, units.toArray(new String[0]),
+                aliases.toArray(new String[0][]), ratios, offsets, dimension, siFactor);
+        for (int i = 0; i < category.getUnitCount(); i++) {
+            Unit unit = category.toUnit(i);
+            defined.putIfAbsent(category.getUnit(i), unit);
+            defined.putIfAbsent(category.getUnit(i).toLowerCase(Locale.ROOT), unit);
+            for (String alias : category.getAliases(i)) {
+                defined.putIfAbsent(alias, unit);
+                defined.putIfAbsent(alias.toLowerCase(Locale.ROOT), unit);
+            }
+        }
+        return category;
+    }
+
+    /**
+     * Maps a snapshot if it exists and was made from definitions with the given checksum.
+     *
+     * @return The mapped snapshot, or null if it has to be rebuilt.
+     */
+    private static ByteBuffer mapSnapshot(Path path, long checksum) {
+        if (!Files.isRegularFile(path))
+            return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != SNAPSHOT_MAGIC || buffer.getLong(Integer.BYTES) != checksum)
+                return null;
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot. Failing to write one only costs a parse on the next launch, so errors are reported and
+     * otherwise ignored.
+     */
+    private static void writeSnapshot(List<UnitCategory> categories, long checksum, Path path) {
+        try {
+            ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+            DataOutputStream blockOut = new DataOutputStream(blocks);
+            int[] blockStarts = new int[categories.size()];
+            int directorySize = 0;
+            for (int i = 0; i < categories.size(); i++) {
+                UnitCategory category = categories.get(i);
+                blockStarts[i] = blockOut.size();
+                Rational siFactor = category.getExactSiFactor();
+                writeString(blockOut, siFactor != null ? siFactor.toString() : "");
+                blockOut.writeInt(category.getUnitCount());
+                for (int unit = 0; unit < category.getUnitCount(); unit++) {
+                    writeString(blockOut, category.getExactRatioToUnitZero(unit).toString());
+                    writeString(blockOut, category.getExactOffsetToUnitZero(unit).toString());
+                    writeString(blockOut, category.getUnit(unit));
+                    String[] aliases = category.getAliases(unit);
+                    blockOut.writeByte(aliases.length);
+                    for (String alias : aliases)
+                        writeString(blockOut, alias);
+                }
+                directorySize += Integer.BYTES + Long.BYTES + Double.BYTES + Short.BYTES
+                        + utf8(category.getName()).length;
+            }
+
+            ByteArrayOutputStream file = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(file);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(checksum);
+            out.writeInt(categories.size());
+            int blocksStart = Integer.BYTES + Long.BYTES + Integer.BYTES + directorySize;
+            for (int i = 0; i < categories.size(); i++) {
+                out.writeInt(blocksStart + blockStarts[i]);
+                out.writeLong(categories.get(i).getDimension());
+                out.writeDouble(categories.get(i).getSiFactor());
+                writeString(out, categories.get(i).getName());
+            }
+            blocks.writeTo(out);
+            out.flush();
+
+            Files.createDirectories(path.getParent());
+            Path temporary = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            Files.write(temporary, file.toByteArray());
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Unable to write unit snapshot at: " + path);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = utf8(string);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class DefaultHolder {
+        private static final UnitRegistry INSTANCE;
+
+        static {
+            try {
+                CURRENT.compareAndSet(null, loadDefault());
+                INSTANCE = CURRENT.get();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to load unit definitions", e);
+            }
+        }
+    }
+}
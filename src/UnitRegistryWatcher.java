@@ -0,0 +1,104 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Reloads a unit definition file whenever it changes and publishes the result with
+ * {@link UnitRegistry#setDefault(UnitRegistry)}. A file that fails to load is reported to stderr and the
+ * previous registry stays in use.
+ */
+public class UnitRegistryWatcher implements Closeable {
+    /**
+     * How long to wait after a change for the editor to finish writing before reloading.
+     */
+    private static final long SETTLE_MILLIS = 200;
+
+    private final Path definitions;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Starts watching a definition file on a daemon thread.
+     *
+     * @param definitions The definition file.
+     * @throws IOException Thrown if the file's directory cannot be watched.
+     */
+    public UnitRegistryWatcher(Path definitions) throws IOException {
+        this.definitions = definitions.toAbsolutePath().normalize();
+        watchService = FileSystems.getDefault().newWatchService();
+        // Editors often replace the file rather than write to it, so watch the directory for both
+        this.definitions.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(this::run, "unit-definitions-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Watches the file named by {@link UnitRegistry#DEFINITIONS_PROPERTY}, if it is set. The built-in
+     * definitions are inside the jar and never change.
+     *
+     * @return The watcher, or null if there is nothing to watch or the directory cannot be watched.
+     */
+    public static UnitRegistryWatcher watchDefault() {
+        String external = System.getProperty(UnitRegistry.DEFINITIONS_PROPERTY);
+        if (external == null)
+            return null;
+        try {
+            return new UnitRegistryWatcher(Paths.get(external));
+        } catch (IOException e) {
+            System.err.println("Unable to watch unit definitions at: " + external);
+            return null;
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    changed |= context instanceof Path && definitions.getFileName().equals(context);
+                }
+                key.reset();
+                if (!changed)
+                    continue;
+                Thread.sleep(SETTLE_MILLIS);
+                // Collapse the burst of events a single save produces into one reload
+                for (WatchKey pending = watchService.poll(); pending != null; pending = watchService.poll()) {
+                    pending.pollEvents();
+                    pending.reset();
+                }
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private void reload() {
+        try {
+            UnitRegistry registry = UnitRegistry.load(definitions);
+            UnitRegistry.setDefault(registry);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Unable to reload unit definitions at " + definitions + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops watching.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
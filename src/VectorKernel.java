@@ -0,0 +1,25 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@link BulkConverter} kernel using the incubating Vector API. Only loaded when the JVM has the
+ * jdk.incubator.vector module, which needs "--add-modules jdk.incubator.vector" at compile and run time.
+ */
+class VectorKernel implements BulkConverter.Kernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void convert(double[] source, int sourceOffset, double[] destination, int destinationOffset, int length,
+                        double factor, double offset) {
+        DoubleVector factors = DoubleVector.broadcast(SPECIES, factor);
+        DoubleVector offsets = DoubleVector.broadcast(SPECIES, offset);
+        int i = 0;
+        for (int upperBound = SPECIES.loopBound(length); i < upperBound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, source, sourceOffset + i)
+                    .fma(factors, offsets)
+                    .intoArray(destination, destinationOffset + i);
+        }
+        for (; i < length; i++)
+            destination[destinationOffset + i] = Math.fma(source[sourceOffset + i], factor, offset);
+    }
+}